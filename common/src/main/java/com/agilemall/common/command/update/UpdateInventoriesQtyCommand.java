@@ -0,0 +1,16 @@
+package com.agilemall.common.command.update;
+
+import com.agilemall.common.dto.OrderDetailDTO;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+//-- 주문의 모든 상품 재고량을 한번에 조정. 여러 Aggregate가 대상이므로 Inventory 서비스의 InventoryCommandHandler가 처리함
+@Value
+@Builder
+public class UpdateInventoriesQtyCommand {
+    String orderId;
+    String adjustType;
+    List<OrderDetailDTO> orderDetails;   //productId, qty만 사용함
+}
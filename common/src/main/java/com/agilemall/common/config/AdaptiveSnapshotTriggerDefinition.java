@@ -0,0 +1,197 @@
+package com.agilemall.common.config;
+/*
+- 목적: Aggregate 로딩(rehydration) 소요시간과 재생한 Event 크기를 기준으로 snapshot 생성을 요청함
+- 설명
+    - 고정 Event 건수마다 snapshot을 만들면 거의 로딩되지 않는 Aggregate도 snapshot을 만들고, 정작 로딩이 느린 Aggregate는 고려하지 못함
+    - Event Store에서 Aggregate를 로딩할 때 소요시간과 재생한 Event 건수/크기를 측정하여, Aggregate 유형별 기준 중 하나라도 넘으면
+      로딩이 끝난 후 해당 Aggregate의 snapshot 생성을 요청함. 다음 로딩부터는 snapshot 이후의 Event만 재생함
+    - 재생한 Event 크기 = 재생 건수 * Aggregate 유형별 평균 Event 크기
+      - 평균 Event 크기는 Event를 직렬화하여 구하며, 처음 SAMPLE_WARMUP건 이후에는 SAMPLE_INTERVAL건마다 1건만 직렬화함
+    - Aggregate 유형별 기준: agilemall.snapshot.<Aggregate class명>.<항목>, 없으면 agilemall.snapshot.default.<항목>
+      - load-time-ms: 로딩 소요시간(ms), replay-bytes: 재생한 Event 크기(byte), max-events: 재생한 Event 건수
+      예) agilemall.snapshot.OrderAggregate.load-time-ms=30
+    - snapshot 효과 확인용 Metric(tag aggregate)
+      - agilemall.aggregate.load: 로딩 소요시간
+      - agilemall.aggregate.load.events: 로딩 시 재생한 Event 건수(snapshot 제외)
+      - agilemall.aggregate.event.bytes: 직렬화한 Event 크기(표본)
+      - agilemall.aggregate.snapshot.scheduled: snapshot 생성 요청 건수(tag reason: load-time, replay-bytes, max-events)
+*/
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventsourcing.SnapshotTrigger;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.serialization.Serializer;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class AdaptiveSnapshotTriggerDefinition implements SnapshotTriggerDefinition {
+    private static final String PROPERTY_PREFIX = "agilemall.snapshot.";
+    private static final long DEFAULT_LOAD_TIME_MS = 20;
+    private static final long DEFAULT_REPLAY_BYTES = 64 * 1024;
+    private static final long DEFAULT_MAX_EVENTS = 200;
+    private static final long SAMPLE_WARMUP = 100;
+    private static final long SAMPLE_INTERVAL = 50;
+    //-- Event 1건만 재생하는 경우는 snapshot으로 줄일 것이 없음
+    private static final long MIN_REPLAYED_EVENTS = 2;
+
+    private final Snapshotter snapshotter;
+    private final Serializer serializer;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final Map<Class<?>, AggregateTypeStats> typeStats = new ConcurrentHashMap<>();
+
+    public AdaptiveSnapshotTriggerDefinition(Snapshotter snapshotter, Serializer serializer,
+                                             MeterRegistry meterRegistry, Environment environment) {
+        this.snapshotter = snapshotter;
+        this.serializer = serializer;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+    }
+
+    @Override
+    public SnapshotTrigger prepareTrigger(Class<?> aggregateType) {
+        return new AdaptiveSnapshotTrigger(typeStats.computeIfAbsent(aggregateType, AggregateTypeStats::new));
+    }
+
+    private long threshold(String aggregateName, String name, long defaultValue) {
+        long value = environment.getProperty(PROPERTY_PREFIX + "default." + name, Long.class, defaultValue);
+        return environment.getProperty(PROPERTY_PREFIX + aggregateName + "." + name, Long.class, value);
+    }
+
+    //-- Aggregate 유형별 기준, 평균 Event 크기, Metric
+    private class AggregateTypeStats {
+        private final Class<?> aggregateType;
+        private final long loadTimeNanos;
+        private final long replayBytes;
+        private final long maxEvents;
+        private final AtomicLong handledEvents = new AtomicLong();
+        private final AtomicLong sampledEvents = new AtomicLong();
+        private final AtomicLong sampledBytes = new AtomicLong();
+        private final Timer loadTimer;
+        private final DistributionSummary loadEvents;
+        private final DistributionSummary eventBytes;
+
+        AggregateTypeStats(Class<?> aggregateType) {
+            String aggregateName = aggregateType.getSimpleName();
+            this.aggregateType = aggregateType;
+            this.loadTimeNanos = TimeUnit.MILLISECONDS.toNanos(threshold(aggregateName, "load-time-ms", DEFAULT_LOAD_TIME_MS));
+            this.replayBytes = threshold(aggregateName, "replay-bytes", DEFAULT_REPLAY_BYTES);
+            this.maxEvents = threshold(aggregateName, "max-events", DEFAULT_MAX_EVENTS);
+            this.loadTimer = Timer.builder("agilemall.aggregate.load")
+                    .tag("aggregate", aggregateName)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.loadEvents = DistributionSummary.builder("agilemall.aggregate.load.events")
+                    .tag("aggregate", aggregateName)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.eventBytes = DistributionSummary.builder("agilemall.aggregate.event.bytes")
+                    .tag("aggregate", aggregateName)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            log.info("[AdaptiveSnapshotTrigger] {}: load-time-ms={}, replay-bytes={}, max-events={}", aggregateName,
+                    TimeUnit.NANOSECONDS.toMillis(loadTimeNanos), replayBytes, maxEvents);
+        }
+
+        //-- 표본 Event만 직렬화하여 평균 Event 크기에 반영
+        void sample(EventMessage<?> msg) {
+            long handled = handledEvents.incrementAndGet();
+            if (handled > SAMPLE_WARMUP && handled % SAMPLE_INTERVAL != 0) return;
+            try {
+                int size = serializer.serialize(msg.getPayload(), byte[].class).getData().length;
+                sampledEvents.incrementAndGet();
+                sampledBytes.addAndGet(size);
+                eventBytes.record(size);
+            } catch (Exception e) {
+                log.warn("[AdaptiveSnapshotTrigger] Can't measure size of {}: {}", msg.getPayloadType().getSimpleName(), e.getMessage());
+            }
+        }
+
+        long averageEventBytes() {
+            long count = sampledEvents.get();
+            return count == 0 ? 0 : sampledBytes.get() / count;
+        }
+
+        //-- 기준을 넘은 항목명을 리턴. 넘지 않았으면 null
+        String record(long loadTime, long replayedEvents) {
+            loadTimer.record(loadTime, TimeUnit.NANOSECONDS);
+            loadEvents.record(replayedEvents);
+
+            if (replayedEvents < MIN_REPLAYED_EVENTS) return null;
+            if (loadTime >= loadTimeNanos) return "load-time";
+            if (replayedEvents * averageEventBytes() >= replayBytes) return "replay-bytes";
+            if (replayedEvents >= maxEvents) return "max-events";
+            return null;
+        }
+
+        void scheduleSnapshot(String aggregateIdentifier, String reason) {
+            Counter.builder("agilemall.aggregate.snapshot.scheduled")
+                    .tag("aggregate", aggregateType.getSimpleName())
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+            snapshotter.scheduleSnapshot(aggregateType, aggregateIdentifier);
+        }
+    }
+
+    /*
+    - Aggregate를 로딩할 때마다 생성되며, 로딩이 끝나면(initializationFinished) snapshot 생성 여부를 결정함
+    - 신규 생성되거나 Cache에서 읽은 Aggregate는 로딩 과정이 없으므로 Event 크기 표본만 수집함
+    */
+    private class AdaptiveSnapshotTrigger implements SnapshotTrigger {
+        private final AggregateTypeStats stats;
+        private final long loadStartedAt = System.nanoTime();
+        private boolean isInitialized = false;
+        private long replayedEvents = 0;
+        private String aggregateIdentifier;
+
+        AdaptiveSnapshotTrigger(AggregateTypeStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void eventHandled(EventMessage<?> msg) {
+            //-- snapshot의 payload는 Aggregate 자신이므로 재생 건수, Event 크기에서 제외함
+            if (stats.aggregateType.equals(msg.getPayloadType())) return;
+
+            stats.sample(msg);
+            if (isInitialized) return;
+            replayedEvents++;
+            if (msg instanceof DomainEventMessage) {
+                aggregateIdentifier = ((DomainEventMessage<?>) msg).getAggregateIdentifier();
+            }
+        }
+
+        @Override
+        public void initializationFinished() {
+            isInitialized = true;
+            long loadTime = System.nanoTime() - loadStartedAt;
+            String reason = stats.record(loadTime, replayedEvents);
+            if (reason == null || aggregateIdentifier == null) return;
+
+            log.info("[AdaptiveSnapshotTrigger] Schedule snapshot of {} {} by {}: {} events, {}ms", stats.aggregateType.getSimpleName(),
+                    aggregateIdentifier, reason, replayedEvents, Duration.ofNanos(loadTime).toMillis());
+            //-- Command 처리 성공 여부와 관계없이 로딩 비용은 발생했으므로 Unit of Work가 끝나면 요청함
+            String identifier = aggregateIdentifier;
+            if (CurrentUnitOfWork.isStarted()) {
+                CurrentUnitOfWork.get().onCleanup(u -> stats.scheduleSnapshot(identifier, reason));
+            } else {
+                stats.scheduleSnapshot(identifier, reason);
+            }
+        }
+    }
+}
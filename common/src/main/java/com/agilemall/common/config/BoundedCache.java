@@ -0,0 +1,126 @@
+package com.agilemall.common.config;
+/*
+- 목적: 크기 상한이 있는 Axon Cache 구현체
+- 설명
+    - WeakReferenceCache는 GC 상황에 따라 비워지고 크기를 알 수 없으므로, Guava Cache로 최대 건수와 미사용 만료시간을 지정함
+    - 최대 건수를 넘으면 오래 사용되지 않은 항목부터 제거함(LRU)
+    - Axon의 CachingSagaStore, Aggregate Repository 등 Cache를 받는 곳에 사용함
+    - registerMetrics로 조회 hit/miss, 제거(eviction), 건수 Metric을 등록함(cache.gets, cache.evictions, cache.size 등, tag cache)
+*/
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.axonframework.common.Registration;
+import org.axonframework.common.caching.Cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+public class BoundedCache implements Cache {
+    private final List<EntryListener> listeners = new CopyOnWriteArrayList<>();
+    private final com.google.common.cache.Cache<Object, Object> cache;
+
+    public BoundedCache(long maximumSize, Duration expireAfterAccess) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .removalListener((RemovalListener<Object, Object>) this::onRemoval)
+                .build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> V get(K key) {
+        Object value = cache.getIfPresent(key);
+        if (value != null) {
+            listeners.forEach(listener -> listener.onEntryRead(key, value));
+        }
+        return (V) value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object prevValue = cache.asMap().put(key, value);
+        if (prevValue == null) {
+            listeners.forEach(listener -> listener.onEntryCreated(key, value));
+        } else {
+            listeners.forEach(listener -> listener.onEntryUpdated(key, value));
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(Object key, Object value) {
+        boolean isCreated = (cache.asMap().putIfAbsent(key, value) == null);
+        if (isCreated) {
+            listeners.forEach(listener -> listener.onEntryCreated(key, value));
+        }
+        return isCreated;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Object key, Supplier<T> valueSupplier) {
+        return (T) cache.asMap().computeIfAbsent(key, k -> valueSupplier.get());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> void computeIfPresent(Object key, UnaryOperator<V> update) {
+        cache.asMap().computeIfPresent(key, (k, value) -> update.apply((V) value));
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        return cache.asMap().remove(key) != null;
+    }
+
+    public void removeAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return cache.asMap().containsKey(key);
+    }
+
+    @Override
+    public Registration registerCacheEntryListener(EntryListener cacheEntryListener) {
+        listeners.add(cacheEntryListener);
+        return () -> listeners.remove(cacheEntryListener);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    //-- Cache 이름으로 Metric 등록. 같은 MeterRegistry에 이름이 겹치지 않게 함
+    public BoundedCache registerMetrics(MeterRegistry meterRegistry, String cacheName) {
+        GuavaCacheMetrics.monitor(meterRegistry, cache, cacheName);
+        return this;
+    }
+
+    //-- 직접 삭제는 onEntryRemoved, 크기 초과/만료로 인한 삭제는 onEntryExpired로 알림. 값 교체는 put에서 알림
+    private void onRemoval(RemovalNotification<Object, Object> notification) {
+        switch (notification.getCause()) {
+            case REPLACED:
+                break;
+            case EXPLICIT:
+                listeners.forEach(listener -> listener.onEntryRemoved(notification.getKey()));
+                break;
+            default:
+                listeners.forEach(listener -> listener.onEntryExpired(notification.getKey()));
+        }
+    }
+}
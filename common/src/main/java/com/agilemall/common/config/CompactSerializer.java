@@ -0,0 +1,113 @@
+package com.agilemall.common.config;
+/*
+- 목적: Event와 snapshot을 XStream XML 대신 Jackson(CBOR 또는 JSON)으로 직렬화
+- 설명
+    - XStream XML은 태그와 class명 때문에 크고 reflection 기반이라 느림. Event Store에 저장되는 모든 Event와 snapshot에 적용함
+    - 형식: agilemall.serializer.format = cbor(기본, binary) | json | xstream(이전 방식으로 되돌릴 때)
+    - getter/setter가 아닌 필드 기준으로 직렬화하므로 Event class에는 기본 생성자만 있으면 됨
+    - 이전에 XStream으로 저장된 Event/snapshot도 읽을 수 있음
+      - Event: EventFormatUpcaster가 upcaster chain의 처음에 새 형식으로 변환함. 이후의 upcaster는 새 형식만 처리하면 됨
+      - 그 외(metadata, snapshot 등): 데이터가 XML('<'로 시작)이면 XStream으로 역직렬화함
+    - Command, Query는 저장되지 않고 builder로만 생성되는 class가 많으므로 기존대로 XStream(axon.serializer.general)을 사용함
+    - 모든 서비스가 같은 형식으로 Event를 읽어야 하므로 형식을 바꿀 때는 모든 서비스를 함께 배포함
+*/
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedObject;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.axonframework.serialization.xml.XStreamSerializer;
+
+public class CompactSerializer implements Serializer {
+    public static final String CBOR = "cbor";
+    public static final String JSON = "json";
+    public static final String XSTREAM = "xstream";
+
+    private final JacksonSerializer delegate;
+    private final XStreamSerializer legacy;
+
+    private CompactSerializer(JacksonSerializer delegate, XStreamSerializer legacy) {
+        this.delegate = delegate;
+        this.legacy = legacy;
+    }
+
+    //-- Event Store용 Serializer 생성. xstream이면 이전과 같은 XStreamSerializer를 리턴함
+    public static Serializer create(String format, XStream xStream) {
+        XStreamSerializer legacy = XStreamSerializer.builder().xStream(xStream).build();
+        if (XSTREAM.equalsIgnoreCase(format)) return legacy;
+
+        JacksonSerializer delegate = JacksonSerializer.builder()
+                .objectMapper(objectMapper(format))
+                .build();
+        return new CompactSerializer(delegate, legacy);
+    }
+
+    public static ObjectMapper objectMapper(String format) {
+        ObjectMapper objectMapper = JSON.equalsIgnoreCase(format) ? new ObjectMapper() : new ObjectMapper(new CBORFactory());
+        return objectMapper
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .registerModule(new JavaTimeModule());
+    }
+
+    //-- XStream이 만든 XML인지 확인. XML은 '<'로 시작하고 JSON object는 '{', CBOR map은 0xA0~0xBF로 시작함
+    public static boolean isXml(byte[] data) {
+        return data.length > 0 && data[0] == '<';
+    }
+
+    //-- XStream으로 저장된 데이터를 새 형식으로 변환(EventFormatUpcaster에서 사용)
+    public byte[] fromLegacy(byte[] xml, SerializedType type) {
+        Object value = legacy.deserialize(new SimpleSerializedObject<>(xml, byte[].class, type));
+        return delegate.serialize(value, byte[].class).getData();
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        return delegate.serialize(object, expectedRepresentation);
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return delegate.canSerializeTo(expectedRepresentation);
+    }
+
+    @Override
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        if (isLegacy(serializedObject.getData())) {
+            return legacy.deserialize(serializedObject);
+        }
+        return delegate.deserialize(serializedObject);
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        return delegate.classForType(type);
+    }
+
+    @Override
+    public SerializedType typeForClass(Class type) {
+        return delegate.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return delegate.getConverter();
+    }
+
+    //-- upcaster를 거친 데이터는 JsonNode 등이므로 byte[], String인 경우만 XML 여부를 확인함
+    private boolean isLegacy(Object data) {
+        if (data instanceof byte[]) return isXml((byte[]) data);
+        if (data instanceof String) return ((String) data).startsWith("<");
+        return data instanceof org.w3c.dom.Document;
+    }
+}
@@ -0,0 +1,221 @@
+package com.agilemall.common.config;
+/*
+- 목적: 직렬화된 Event, snapshot, Command, Query가 일정 크기 이상이면 압축하여 Event Store 용량과 네트워크 전송량을 줄임
+- 설명
+    - 압축 기준(agilemall.compression.threshold-bytes) 이상인 byte[] 데이터만 압축함. 작은 메시지는 압축하지 않음(압축 효과보다 비용이 큼)
+    - 압축: JDK Deflater(BEST_SPEED) + preset dictionary
+      - dictionary는 모든 메시지에 반복되는 byte열로 구성함
+        - Event, snapshot(기본 CBOR): CBOR/JSON으로 직렬화한 Event의 필드명 key, ID prefix, 상태코드 등
+        - Command, Query(XStream): class명과 XML 태그
+      - 주문상품, 결제수단 목록처럼 작은 메시지에서도 첫 항목부터 dictionary를 참조하므로 압축률이 높아짐
+    - 압축 데이터 형식: [0x00][dictionary version][deflate 데이터]
+      - XML('<'), JSON('{'), CBOR map(0xA0~0xBF)은 0x00으로 시작하지 않으므로 압축하지 않은 데이터와 구분됨
+      - 압축하지 않은 이전 데이터도 그대로 읽음
+    - 읽을 때 자동으로 압축을 해제함
+      - Event: EventFormatUpcaster가 upcaster chain의 처음에 압축을 해제함. 이후의 upcaster는 압축 여부를 몰라도 됨
+      - 그 외(snapshot, Command, Query 등): deserialize에서 압축을 해제함
+    - dictionary를 바꾸면 이전 압축 데이터를 읽을 수 없으므로, 바꿀 때는 새 version으로 추가하고 이전 version은 남겨둠
+    - 모든 서비스가 압축된 메시지를 읽을 수 있어야 하므로 처음 적용 시에는 모든 서비스를 함께 배포함
+*/
+
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializationException;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class CompressingSerializer implements Serializer {
+    private static final byte MARKER = 0x00;
+    //-- 압축할 때 사용하는 dictionary version. 압축 해제는 데이터에 기록된 version의 dictionary를 사용함
+    static final byte DICTIONARY_VERSION = 2;
+    private static final int HEADER_LENGTH = 2;
+
+    //-- deflate는 dictionary의 뒤쪽을 더 가깝게 참조하므로 자주 나오는 byte열을 뒤에 둠
+    //-- 주의: 이미 저장된 데이터를 읽을 수 없게 되므로 내용을 바꾸지 말고 새 version을 추가할 것
+
+    //-- Command, Query(XStream XML)에 반복되는 class명과 태그
+    private static final String XSTREAM_WORDS = String.join("",
+            "com.agilemall.common.command.create.CreateReportCommand",
+            "com.agilemall.common.command.update.UpdateReportCommand",
+            "com.agilemall.common.command.create.CreatePaymentCommand",
+            "com.agilemall.common.command.update.UpdatePaymentCommand",
+            "com.agilemall.common.events.create.CreatedPaymentEvent",
+            "com.agilemall.common.events.update.UpdatedPaymentEvent",
+            "com.agilemall.common.events.update.UpdatedOrderToReportEvent",
+            "com.agilemall.common.events.update.UpdatedPaymentToReportEvent",
+            "com.agilemall.order.events.CreatedOrderEvent",
+            "com.agilemall.order.events.UpdatedOrderEvent",
+            "<isCompensation>false</isCompensation>",
+            "<deliveryId>SHIP_</deliveryId><deliveryStatus></deliveryStatus>",
+            "<reportId>RPT_</reportId><userId></userId>",
+            "<orderDatetime>T</orderDatetime><orderStatus></orderStatus>",
+            "<paymentStatus></paymentStatus><totalPaymentAmt></totalPaymentAmt><totalOrderAmt></totalOrderAmt>",
+            "<paymentDetails></paymentDetails>",
+            "<orderDetails></orderDetails>",
+            "<com.agilemall.common.dto.PaymentDetailDTO><paymentKind></paymentKind><paymentAmt></paymentAmt>",
+            "</com.agilemall.common.dto.PaymentDetailDTO>",
+            "<com.agilemall.common.dto.OrderDetailDTO><productId></productId><qty></qty><orderAmt></orderAmt>",
+            "</com.agilemall.common.dto.OrderDetailDTO>",
+            "<paymentId>PAY_</paymentId><orderId>ORDER_</orderId>"
+    );
+
+    //-- version 1 dictionary: XStream XML만 포함함. version 1로 압축된 데이터를 읽을 때만 사용함
+    static final byte[] DICTIONARY_V1 = XSTREAM_WORDS.getBytes(StandardCharsets.UTF_8);
+
+    //-- version 2 dictionary: XStream XML + CBOR/JSON으로 직렬화한 Event. 값은 ID prefix, 상태코드처럼 반복되는 부분만 남김
+    //-- CBOR: \277 map 시작, \377 map 끝, 'a'~'w'(0x61~0x77)는 바로 뒤 문자열의 길이(1~23) header, \2xx 배열 header, \031 2byte 정수
+    //--       ID는 15자이므로 'o' header, LocalDateTime은 [연,월,일,시,분,초,nano] 배열(\207)로 직렬화됨
+    static final byte[] DICTIONARY_V2 = String.join("",
+            XSTREAM_WORDS,
+            //-- JSON(agilemall.serializer.format=json)
+            "{\"orderId\":\"ORDER_\",\"userId\":\"\",\"orderDatetime\":[2026,1,1,0,0,0,0],\"orderStatus\":\"10\",\"totalOrderAmt\":0,",
+            "\"orderDetails\":[{\"orderId\":\"ORDER_\",\"productId\":\"PROD_\",\"qty\":1,\"orderAmt\":0}],\"paymentId\":\"PAY_\",",
+            "\"paymentDetails\":[{\"orderId\":\"ORDER_\",\"paymentId\":\"PAY_\",\"paymentKind\":\"10\",\"paymentAmt\":0}],\"totalPaymentAmt\":0,",
+            "\"paymentStatus\":\"10\",\"deliveryId\":\"SHIP_\",\"deliveryStatus\":\"10\",\"reportId\":\"RPT_\",\"isCompensation\":false}",
+            //-- CBOR(기본 형식): ReportDTO, OrderAggregate snapshot, UpdatedOrderEvent, PaymentDTO, CreatedOrderEvent, 주문상품, 결제수단 순
+            "\277hreportIdoRPT_gorderIdoORDER_fuserIdmpaymentStatusb10jdeliveryIdoSHIP_ndeliveryStatusb10",
+            "\277sorderDetailIdentity\277gorderIdoORDER_iproductIdjPROD_\377cqty\001horderAmt\031",
+            "\277mpreviousState\277gorderIdoORDER_fuserId",
+            "\277gorderIdoORDER_ipaymentIdoPAY_morderDatetime\207\031\007\352mtotalOrderAmt\031",
+            "\277ipaymentIdoPAY_gorderIdoORDER_ototalPaymentAmt\031mpaymentStatusb10npaymentDetails\200",
+            "\277gorderIdoORDER_fuserIdmorderDatetime\207\031\007\352korderStatusb10mtotalOrderAmt\031lorderDetails\200",
+            "\277ipaymentIdoPAY_npaymentDetails\200ototalPaymentAmt\031nisCompensation\364",
+            "\277gorderIdoORDER_iproductIdjPROD_cqty\001horderAmt\031",
+            "\277gorderIdoORDER_ipaymentIdoPAY_kpaymentKindb10jpaymentAmt\031"
+    ).getBytes(StandardCharsets.ISO_8859_1);
+
+    private final Serializer delegate;
+    private final int threshold;
+
+    private CompressingSerializer(Serializer delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    //-- threshold(byte) 이상인 데이터를 압축하는 Serializer 생성. threshold가 0 이하면 압축하지 않고 delegate를 그대로 리턴함
+    public static Serializer wrap(Serializer delegate, int threshold) {
+        if (threshold <= 0) return delegate;
+        return new CompressingSerializer(delegate, threshold);
+    }
+
+    //-- 압축을 적용하기 전의 Serializer. 압축을 사용하지 않는 경우 serializer 자신을 리턴함
+    public static Serializer unwrap(Serializer serializer) {
+        return (serializer instanceof CompressingSerializer) ? ((CompressingSerializer) serializer).delegate : serializer;
+    }
+
+    public static boolean isCompressed(byte[] data) {
+        return data.length > HEADER_LENGTH && data[0] == MARKER;
+    }
+
+    public static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setDictionary(DICTIONARY_V2);
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + HEADER_LENGTH);
+            out.write(MARKER);
+            out.write(DICTIONARY_VERSION);
+            byte[] buffer = new byte[Math.max(data.length / 2, 256)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] decompress(byte[] data) {
+        byte[] dictionary = dictionary(data[1]);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[Math.max(data.length * 2, 256)];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new SerializationException("Compressed data is truncated");
+                    }
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SerializationException("Failed to decompress data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] dictionary(byte version) {
+        switch (version) {
+            case 1: return DICTIONARY_V1;
+            case 2: return DICTIONARY_V2;
+            default: throw new SerializationException("Unknown compression dictionary version: " + version);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        //-- Axon Server로 보내는 메시지와 Event Store에 저장하는 데이터는 byte[]로 요청됨
+        if (!byte[].class.equals(expectedRepresentation)) {
+            return delegate.serialize(object, expectedRepresentation);
+        }
+
+        SerializedObject<byte[]> serialized = delegate.serialize(object, byte[].class);
+        byte[] data = serialized.getData();
+        if (data.length < threshold) return (SerializedObject<T>) serialized;
+
+        //-- 압축해도 작아지지 않으면(이미 압축된 형식 등) 원본을 그대로 사용함
+        byte[] compressed = compress(data);
+        if (compressed.length >= data.length) return (SerializedObject<T>) serialized;
+        return (SerializedObject<T>) new SimpleSerializedObject<>(compressed, byte[].class, serialized.getType());
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return delegate.canSerializeTo(expectedRepresentation);
+    }
+
+    @Override
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        Object data = serializedObject.getData();
+        if (data instanceof byte[] && isCompressed((byte[]) data)) {
+            return delegate.deserialize(
+                    new SimpleSerializedObject<>(decompress((byte[]) data), byte[].class, serializedObject.getType()));
+        }
+        return delegate.deserialize(serializedObject);
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        return delegate.classForType(type);
+    }
+
+    @Override
+    public SerializedType typeForClass(Class type) {
+        return delegate.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return delegate.getConverter();
+    }
+}
@@ -2,6 +2,5 @@ package com.agilemall.common.config;
 
 public final class Constants {
     // 시스템 설정 관련 상수
-    public final static int SNAPSHOT_COUNT = 5;
     public final static int GATEWAY_TIMEOUT = 30;
 }
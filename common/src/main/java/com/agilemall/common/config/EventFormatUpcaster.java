@@ -0,0 +1,48 @@
+package com.agilemall.common.config;
+/*
+- 목적: 압축되었거나 XStream으로 저장된 Event를 읽을 때 현재 Event Serializer의 형식(압축하지 않은 CBOR/JSON)으로 변환
+- 설명
+    - upcaster chain의 가장 앞에 등록하여, 이후의 upcaster와 Event Handler는 압축하지 않은 새 형식의 Event만 받게 함
+    - canUpcast는 Event type만 확인하고 데이터는 읽지 않음. 데이터를 확인하면 처리하지 않는 Event도 모두 압축을 해제하게 됨
+    - 변환은 Event를 실제로 읽을 때(payload 요청 시) 한번에 수행되며, Event Store의 데이터는 바꾸지 않음
+      - 압축된 데이터(CompressingSerializer 참조)이면 압축을 해제함
+      - 압축 해제한 데이터가 XStream XML이면 CompactSerializer 형식으로 변환함. Event Serializer가 xstream이면 변환하지 않음
+      - 그 외에는 데이터를 그대로 사용함
+*/
+
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.upcasting.event.IntermediateEventRepresentation;
+import org.axonframework.serialization.upcasting.event.SingleEventUpcaster;
+
+public class EventFormatUpcaster extends SingleEventUpcaster {
+    private static final String EVENT_PACKAGE = "com.agilemall.";
+
+    private final CompactSerializer serializer;
+
+    public EventFormatUpcaster(Serializer eventSerializer) {
+        //-- 압축은 이 upcaster가 먼저 해제하므로 압축 전 Serializer로 변환함
+        Serializer serializer = CompressingSerializer.unwrap(eventSerializer);
+        this.serializer = (serializer instanceof CompactSerializer) ? (CompactSerializer) serializer : null;
+    }
+
+    @Override
+    protected boolean canUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        return intermediateRepresentation.getType().getName().startsWith(EVENT_PACKAGE)
+                && intermediateRepresentation.canConvertDataTo(byte[].class);
+    }
+
+    @Override
+    protected IntermediateEventRepresentation doUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        SerializedType type = intermediateRepresentation.getType();
+        return intermediateRepresentation.upcastPayload(type, byte[].class, data -> toCurrentFormat(data, type));
+    }
+
+    private byte[] toCurrentFormat(byte[] data, SerializedType type) {
+        byte[] decompressed = CompressingSerializer.isCompressed(data) ? CompressingSerializer.decompress(data) : data;
+        if (serializer != null && CompactSerializer.isXml(decompressed)) {
+            return serializer.fromLegacy(decompressed, type);
+        }
+        return decompressed;
+    }
+}
@@ -0,0 +1,51 @@
+package com.agilemall.common.config;
+/*
+- 목적: revision 없이 저장된 이전 Event의 revision을 첫 revision("1")으로 지정
+- 설명
+    - Event class에 @Revision을 붙이기 전에 저장된 Event는 revision이 없음(null)
+    - revision을 "1"로 맞춰두면 이후 구조 변경 시 RevisionUpcaster("1" -> "2")만 추가하면 됨
+    - 데이터는 그대로 두고 type의 revision만 바꾸므로 Event를 역직렬화하지 않음
+    - upcaster chain 순서: EventFormatUpcaster(0) -> InitialRevisionUpcaster(1) -> RevisionUpcaster(2 이상)
+*/
+
+import org.axonframework.serialization.Revision;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.axonframework.serialization.upcasting.event.IntermediateEventRepresentation;
+import org.axonframework.serialization.upcasting.event.SingleEventUpcaster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class InitialRevisionUpcaster extends SingleEventUpcaster {
+    public static final String INITIAL_REVISION = "1";
+    private static final String EVENT_PACKAGE = "com.agilemall.";
+
+    //-- Event type명별 @Revision 여부. class 조회는 type별로 한번만 수행함
+    private final Map<String, Boolean> revisionedTypes = new ConcurrentHashMap<>();
+
+    @Override
+    protected boolean canUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        String typeName = intermediateRepresentation.getType().getName();
+        return intermediateRepresentation.getType().getRevision() == null
+                && typeName.startsWith(EVENT_PACKAGE)
+                && revisionedTypes.computeIfAbsent(typeName, this::hasRevision);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected IntermediateEventRepresentation doUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        Class<Object> contentType = (Class<Object>) intermediateRepresentation.getContentType();
+        return intermediateRepresentation.upcastPayload(
+                new SimpleSerializedType(intermediateRepresentation.getType().getName(), INITIAL_REVISION),
+                contentType, Function.identity());
+    }
+
+    private boolean hasRevision(String typeName) {
+        try {
+            return Class.forName(typeName, false, getClass().getClassLoader()).isAnnotationPresent(Revision.class);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.agilemall.common.config;
+/*
+- 목적: Event class의 필드 구조가 바뀌었을 때 이전 revision의 Event를 새 구조로 변환
+- 설명
+    - Event를 객체로 역직렬화하지 않고 JSON tree(ObjectNode)에서 필드를 추가/변경/삭제함
+    - 변환은 Event Handler가 payload를 요청할 때 수행되며, 처리하지 않는 Event는 변환도 역직렬화도 하지 않음
+    - Event Serializer가 CBOR/JSON인 경우에만 동작함(CompactSerializer 참조)
+    - 사용 예: CreatedOrderEvent에 currency 필드를 추가하고 @Revision("2")로 올린 경우 해당 Event를 읽는 서비스의 AxonConfig에 등록
+    @Bean
+    @Order(2)
+    public EventUpcaster createdOrderEventUpcaster() {
+        return new RevisionUpcaster(CreatedOrderEvent.class, "1", "2", event -> event.put("currency", "KRW"));
+    }
+*/
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.axonframework.serialization.upcasting.event.IntermediateEventRepresentation;
+import org.axonframework.serialization.upcasting.event.SingleEventUpcaster;
+
+import java.util.function.UnaryOperator;
+
+public class RevisionUpcaster extends SingleEventUpcaster {
+    private final SerializedType inputType;
+    private final SerializedType outputType;
+    private final UnaryOperator<ObjectNode> change;
+
+    public RevisionUpcaster(Class<?> eventType, String fromRevision, String toRevision, UnaryOperator<ObjectNode> change) {
+        this.inputType = new SimpleSerializedType(eventType.getName(), fromRevision);
+        this.outputType = new SimpleSerializedType(eventType.getName(), toRevision);
+        this.change = change;
+    }
+
+    @Override
+    protected boolean canUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        return inputType.equals(intermediateRepresentation.getType())
+                && intermediateRepresentation.canConvertDataTo(JsonNode.class);
+    }
+
+    @Override
+    protected IntermediateEventRepresentation doUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        return intermediateRepresentation.upcastPayload(outputType, JsonNode.class, event -> change.apply((ObjectNode) event));
+    }
+}
@@ -0,0 +1,54 @@
+package com.agilemall.common.config;
+/*
+- 목적: 모든 서비스가 같은 형식으로 Event, Command, Query를 직렬화하고 이전 형식의 Event를 읽도록 Serializer와 공통 upcaster를 등록
+- 설명
+    - 서비스마다 설정이 다르면 다른 서비스가 저장한 Event를 읽지 못하므로, 형식과 압축 설정은 여기서만 변경함
+    - XStream(허용 type, 무시할 항목)은 서비스마다 다르므로 각 서비스의 AxonConfig에서 등록함
+    - 특정 Event의 구조 변경에 따른 RevisionUpcaster는 @Order(2)부터 해당 Event를 읽는 서비스의 AxonConfig에 등록함
+    - 각 서비스의 Application class에서 @Import하여 사용함
+*/
+
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.upcasting.event.EventUpcaster;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+public class SerializerConfig {
+
+    //-- Event, snapshot 직렬화 형식(agilemall.serializer.format: cbor, json, xstream). 이전 XStream Event도 읽음(CompactSerializer 참조)
+    //-- agilemall.compression.threshold-bytes 이상인 Event, snapshot은 압축하여 저장함(CompressingSerializer 참조)
+    @Bean
+    @Qualifier("eventSerializer")
+    public Serializer eventSerializer(XStream xStream, @Value("${agilemall.serializer.format:cbor}") String format,
+                                      @Value("${agilemall.compression.threshold-bytes:512}") int compressionThreshold) {
+        return CompressingSerializer.wrap(CompactSerializer.create(format, xStream), compressionThreshold);
+    }
+
+    //-- Command, Query 직렬화. 형식은 기존대로 XStream이며 agilemall.compression.threshold-bytes 이상이면 압축함
+    @Bean
+    @Qualifier("messageSerializer")
+    public Serializer messageSerializer(XStream xStream,
+                                        @Value("${agilemall.compression.threshold-bytes:512}") int compressionThreshold) {
+        return CompressingSerializer.wrap(XStreamSerializer.builder().xStream(xStream).build(), compressionThreshold);
+    }
+
+    //-- 압축되었거나 XStream으로 저장된 Event를 읽을 때 현재 형식으로 변환. 다른 upcaster보다 먼저 수행함
+    @Bean
+    @Order(0)
+    public EventUpcaster eventFormatUpcaster(@Qualifier("eventSerializer") Serializer eventSerializer) {
+        return new EventFormatUpcaster(eventSerializer);
+    }
+
+    //-- revision 없이 저장된 이전 Event를 revision "1"로 지정. Event 구조 변경 시 RevisionUpcaster를 @Order(2)부터 추가함
+    @Bean
+    @Order(1)
+    public EventUpcaster initialRevisionUpcaster() {
+        return new InitialRevisionUpcaster();
+    }
+}
@@ -0,0 +1,63 @@
+package com.agilemall.common.config;
+/*
+- 목적: 'spring.threads.virtual.enabled=true'이면 Blocking 처리 구간을 Virtual Thread에서 수행함
+- 설명
+    - 각 서비스는 sendAndWait, QueryGateway.query().join() 등으로 대부분의 시간을 대기하므로,
+      Platform Thread 수가 동시 처리량의 상한이 됨
+    - Tomcat 요청 처리: Spring Boot 3.2가 같은 property로 Virtual Thread를 적용함 (JDK 21 이상에서 실행 시)
+    - Command Handler: local segment를 AsynchronousCommandBus로 바꾸어 Axon Server connector thread를
+      바로 반환하고 Command Handler는 Virtual Thread에서 수행함
+      - JDK 21 미만에서는 등록하지 않고 Axon 기본 local segment(SimpleCommandBus)를 그대로 사용함
+    - Tracking Event Processor(Event Handler, Saga): 기본 ThreadFactory를 Virtual Thread로 바꿈.
+      처리 순서를 보장해야 하므로 동시 처리 수는 지금처럼 segment 수로 제한됨
+    - Query Handler: Axon Server connector의 query thread pool(axon.axonserver.query-threads)에서 그대로 수행됨
+    - 각 서비스의 Application class에서 @Import하여 사용함
+*/
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.AsynchronousCommandBus;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.TrackingEventProcessorConfiguration;
+import org.axonframework.messaging.interceptors.CorrelationDataInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnJava;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    @Qualifier("localSegment")
+    @ConditionalOnJava(JavaVersion.TWENTY_ONE)
+    public CommandBus localSegment(TransactionManager txManager,
+                                   org.axonframework.config.Configuration axonConfiguration) {
+        log.info("[VirtualThreadConfig] Command handlers run on virtual threads");
+
+        AsynchronousCommandBus commandBus = AsynchronousCommandBus.builder()
+                .executor(VirtualThreads.newThreadPerTaskExecutor("CommandHandler-"))
+                .transactionManager(txManager)
+                .messageMonitor(axonConfiguration.messageMonitor(CommandBus.class, "commandBus"))
+                .build();
+        commandBus.registerHandlerInterceptor(new CorrelationDataInterceptor<>(axonConfiguration.correlationDataProviders()));
+        return commandBus;
+    }
+
+    //-- 서비스의 AxonConfig에서 따로 등록한 Processor는 VirtualThreads.processorThreadFactory()를 지정해야 함
+    @Autowired
+    public void configure(EventProcessingConfigurer configurer) {
+        log.info("[VirtualThreadConfig] Tracking event processors run on virtual threads");
+
+        configurer.registerTrackingEventProcessorConfiguration(
+                c -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andThreadFactory(VirtualThreads.processorThreadFactory(true))
+        );
+    }
+}
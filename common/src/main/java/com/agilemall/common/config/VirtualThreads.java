@@ -0,0 +1,75 @@
+package com.agilemall.common.config;
+/*
+- 목적: Virtual Thread를 사용하는 ThreadFactory와 Executor를 생성함
+- 설명
+    - 소스는 Java 17로 컴파일하므로 Java 21 API(Thread.ofVirtual, Executors.newThreadPerTaskExecutor)를 reflection으로 호출함
+    - JDK 21 미만에서 실행하면 ThreadFactory는 경고 로그를 남기고 Platform Thread를 사용함
+    - 작업마다 thread를 만드는 Executor는 Platform Thread로 대체하면 thread 수가 무제한으로 늘어나므로 만들지 않음(isSupported()로 먼저 확인)
+*/
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.common.AxonThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+
+@Slf4j
+public final class VirtualThreads {
+    private static final boolean SUPPORTED = checkSupported();
+
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    //-- 이름이 'namePrefix + 순번'인 Virtual Thread를 생성하는 ThreadFactory
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        if (!SUPPORTED) {
+            log.warn("[VirtualThreads] Virtual thread is not supported in Java {}. Use platform threads for {}",
+                    Runtime.version().feature(), namePrefix);
+            return new AxonThreadFactory(namePrefix);
+        }
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create virtual thread factory: " + e.getMessage(), e);
+        }
+    }
+
+    //-- 작업마다 새 Virtual Thread를 생성하는 Executor. Virtual Thread를 지원하지 않으면 IllegalStateException
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!SUPPORTED) {
+            throw new IllegalStateException("Virtual thread is not supported in Java " + Runtime.version().feature());
+        }
+        ThreadFactory threadFactory = newThreadFactory(namePrefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create virtual thread executor: " + e.getMessage(), e);
+        }
+    }
+
+    //-- Tracking Event Processor의 ThreadFactory. isVirtual이 false이면 Axon 기본값과 같은 Platform Thread를 사용함
+    public static Function<String, ThreadFactory> processorThreadFactory(boolean isVirtual) {
+        if (isVirtual) {
+            return processorName -> newThreadFactory("EventProcessor[" + processorName + "]-");
+        }
+        return processorName -> new AxonThreadFactory("EventProcessor[" + processorName + "]");
+    }
+
+    private static boolean checkSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private VirtualThreads() {}
+}
@@ -1,8 +1,10 @@
 package com.agilemall.common.events.create;
 
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 @Data
+@Revision("1")
 public class CreatedDeliveryEvent {
     private String orderId;
     private String deliveryId;
@@ -2,10 +2,12 @@ package com.agilemall.common.events.create;
 
 import com.agilemall.common.dto.PaymentDetailDTO;
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 import java.util.List;
 
 @Data
+@Revision("1")
 public class CreatedPaymentEvent {
     private String paymentId;
     private String orderId;
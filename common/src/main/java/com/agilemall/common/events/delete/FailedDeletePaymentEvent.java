@@ -2,9 +2,13 @@ package com.agilemall.common.events.delete;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 @Data
 @AllArgsConstructor
+@NoArgsConstructor
+@Revision("1")
 public class FailedDeletePaymentEvent {
     private String paymentId;
     private String orderId;
@@ -1,8 +1,10 @@
 package com.agilemall.common.events.update;
 
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 @Data
+@Revision("1")
 public class CancelledUpdatePaymentEvent {
     private String paymentId;
     private String orderId;
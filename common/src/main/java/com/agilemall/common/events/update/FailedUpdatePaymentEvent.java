@@ -2,9 +2,13 @@ package com.agilemall.common.events.update;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 @Getter
 @AllArgsConstructor
+@NoArgsConstructor
+@Revision("1")
 public class FailedUpdatePaymentEvent {
     private String paymentId;
     private String orderId;
@@ -1,10 +1,13 @@
 package com.agilemall.common.events.update;
 
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 @Data
+@Revision("1")
 public class UpdatedInventoryQtyEvent {
     private String productId;
     private String adjustType;
     private int adjustQty;
+    private int inventoryQty;   //조정 후 재고량
 }
@@ -3,12 +3,14 @@ package com.agilemall.common.events.update;
 import com.agilemall.common.dto.OrderDetailDTO;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @NoArgsConstructor
+@Revision("1")
 public class UpdatedOrderToReportEvent {
     private String orderId;
     private LocalDateTime orderDatetime;
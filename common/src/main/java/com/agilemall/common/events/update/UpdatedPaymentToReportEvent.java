@@ -3,11 +3,13 @@ package com.agilemall.common.events.update;
 import com.agilemall.common.dto.PaymentDetailDTO;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 import java.util.List;
 
 @Data
 @NoArgsConstructor
+@Revision("1")
 public class UpdatedPaymentToReportEvent {
     private String paymentId;
     private String orderId;
@@ -0,0 +1,103 @@
+package com.agilemall.common.id;
+/*
+- 목적: 주문/결제/배송/리포트 ID를 충돌 없이 시간 순서대로 생성함
+- 설명
+    - ID는 '접두어 + 36진수(0-9, A-Z) 고정길이 문자열'이며 전체 길이는 ID 컬럼 길이(15자) 이내임
+    - 36진수로 변환하는 값(46bit)의 구성: 시간(31bit, 기준일 이후 초) + 노드ID(5bit) + 순번(10bit)
+    - 시간이 상위 bit에 있으므로 생성되는 ID는 시간 순서대로 증가하고, DB B-tree 인덱스에는 대부분 끝에 추가됨
+    - 노드ID가 포함되므로 여러 서비스 인스턴스에서 동시에 생성해도 ID가 충돌하지 않음
+    - 노드ID는 System property 'agilemall.node-id' 또는 환경변수 'AGILEMALL_NODE_ID'(0~31)로 지정함.
+      같은 서비스의 인스턴스마다 다른 값을 지정해야 하며, 지정하지 않으면 ID가 중복될 수 있으므로 서비스가 시작되지 않음
+      (ID를 생성하는 서비스의 Application class에서 시작 시 nodeId()로 확인함)
+    - Lock 없이 AtomicLong의 CAS로 '시간+순번'을 증가시키므로 같은 노드 안에서는 항상 증가(monotonic)함
+    - 1초에 순번(1024개)을 모두 쓰면 다음 초의 순번을 미리 사용하고, 부하가 줄면 실제 시간이 다시 따라잡음.
+      시스템 시간이 뒤로 가도 마지막으로 생성한 값보다 큰 값을 생성함
+    - 사용 예: String orderId = IdGenerator.ORDER.nextId();
+*/
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+@Slf4j
+public final class IdGenerator {
+    public static final int MAX_ID_LENGTH = 15;
+
+    static final long EPOCH_SECONDS = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 10;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    static final int RADIX = 36;
+    private static final int MIN_BODY_LENGTH = 9;    //-- 36^9 > 2^46
+
+    private static final long NODE_ID = resolveNodeId(
+            System.getProperty("agilemall.node-id", System.getenv("AGILEMALL_NODE_ID")));
+
+    public static final IdGenerator ORDER = new IdGenerator("ORDER_");
+    public static final IdGenerator PAYMENT = new IdGenerator("PAY_");
+    public static final IdGenerator DELIVERY = new IdGenerator("SHIP_");
+    public static final IdGenerator REPORT = new IdGenerator("RPT_");
+
+    private final String prefix;
+    private final int bodyLength;
+    //-- 현재 시간(epoch 초). 테스트에서는 고정된 시간을 지정함
+    private final LongSupplier clock;
+    //-- 상위 bit는 시간(초), 하위 SEQUENCE_BITS는 순번
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public IdGenerator(String prefix) {
+        this(prefix, () -> Instant.now().getEpochSecond());
+    }
+
+    IdGenerator(String prefix, LongSupplier clock) {
+        this.prefix = prefix;
+        this.clock = clock;
+        this.bodyLength = MAX_ID_LENGTH - prefix.length();
+        if (bodyLength < MIN_BODY_LENGTH) {
+            throw new IllegalArgumentException("ID prefix is too long: " + prefix);
+        }
+    }
+
+    public String nextId() {
+        long tick = nextTick();
+        long value = ((tick >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | (NODE_ID << SEQUENCE_BITS)
+                | (tick & SEQUENCE_MASK);
+
+        String body = Long.toString(value, RADIX).toUpperCase();
+        StringBuilder sb = new StringBuilder(MAX_ID_LENGTH).append(prefix);
+        for (int i = body.length(); i < bodyLength; i++) sb.append('0');
+        return sb.append(body).toString();
+    }
+
+    private long nextTick() {
+        while (true) {
+            long prev = lastTick.get();
+            long now = (clock.getAsLong() - EPOCH_SECONDS) << SEQUENCE_BITS;
+            long next = Math.max(prev + 1, now);
+            if (lastTick.compareAndSet(prev, next)) return next;
+        }
+    }
+
+    //-- 노드ID. 지정되지 않았거나 범위를 벗어나면 Exception이 발생하므로 서비스 시작 시 호출하여 확인함
+    public static long nodeId() {
+        return NODE_ID;
+    }
+
+    static long resolveNodeId(String configured) {
+        if (configured == null || configured.isBlank()) {
+            throw new IllegalStateException("agilemall.node-id(AGILEMALL_NODE_ID) is not set. "
+                    + "Set a different value between 0 and " + MAX_NODE_ID + " for each instance");
+        }
+
+        long nodeId = Long.parseLong(configured.trim());
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("agilemall.node-id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        log.info("[IdGenerator] Node Id: {}", nodeId);
+        return nodeId;
+    }
+}
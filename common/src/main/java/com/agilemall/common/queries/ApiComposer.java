@@ -0,0 +1,97 @@
+package com.agilemall.common.queries;
+/*
+- 목적: API Composition패턴에서 여러 서비스에 대한 Query를 동시에 요청하고 결과를 취합함
+- 설명
+    - 각 Query를 순서대로 join()하면 응답시간이 모든 Query 응답시간의 합이 되지만,
+      동시에 요청하면 가장 느린 Query의 응답시간만큼만 기다리면 됨
+    - Query별로 timeout을 지정할 수 있으며, 일부 Query가 실패하더라도 나머지 결과는 리턴하고 실패 내역을 함께 알려줌
+    - 사용 예
+    ComposedResultVO composed = new ApiComposer(queryGateway)
+            .add(Queries.ORDER_BY_ORDER_ID, orderId, OrderDTO.class)
+            .add(Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class)
+            .join();
+    OrderDTO order = composed.get(Queries.ORDER_BY_ORDER_ID, OrderDTO.class);
+    - SingleFlightQueryGateway로 생성하면 다른 요청과 동시에 발생한 같은 Query는 한번만 발송됨
+*/
+
+import com.agilemall.common.config.Constants;
+import com.agilemall.common.vo.ComposedResultVO;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+public class ApiComposer {
+    private final QueryGateway queryGateway;
+    private final SingleFlightQueryGateway singleFlightQueryGateway;
+    private final Map<String, CompletableFuture<?>> branches = new LinkedHashMap<>();
+
+    public ApiComposer(QueryGateway queryGateway) {
+        this.queryGateway = queryGateway;
+        this.singleFlightQueryGateway = null;
+    }
+
+    public ApiComposer(SingleFlightQueryGateway singleFlightQueryGateway) {
+        this.queryGateway = singleFlightQueryGateway.getQueryGateway();
+        this.singleFlightQueryGateway = singleFlightQueryGateway;
+    }
+
+    //-- 기본 timeout(Constants.GATEWAY_TIMEOUT)으로 Query를 추가함
+    public <R> ApiComposer add(String queryName, Object payload, Class<R> responseType) {
+        return add(queryName, payload, responseType, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    //-- Query를 바로 발송하고 결과를 기다리지 않음. 동일한 Query명은 한번만 추가할 수 있음
+    public <R> ApiComposer add(String queryName, Object payload, Class<R> responseType, long timeout, TimeUnit unit) {
+        if (branches.containsKey(queryName)) {
+            throw new IllegalArgumentException("Query <" + queryName + "> is already added");
+        }
+        CompletableFuture<R> future = (singleFlightQueryGateway != null ?
+                singleFlightQueryGateway.query(queryName, payload, responseType) :
+                queryGateway.query(queryName, payload, ResponseTypes.instanceOf(responseType)))
+                .orTimeout(timeout, unit);
+        branches.put(queryName, future);
+        return this;
+    }
+
+    //-- 모든 Query가 완료(성공, 실패, timeout)되면 결과를 취합하여 리턴하는 Future를 리턴함
+    public CompletableFuture<ComposedResultVO> execute() {
+        return CompletableFuture.allOf(branches.values().stream()
+                        .map(future -> future.handle((result, error) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> collect());
+    }
+
+    //-- 모든 Query가 완료될 때까지 기다린 후 결과를 리턴함. 대기시간은 가장 느린 Query의 응답시간임
+    public ComposedResultVO join() {
+        return execute().join();
+    }
+
+    private ComposedResultVO collect() {
+        ComposedResultVO composed = new ComposedResultVO();
+        branches.forEach((queryName, future) -> {
+            try {
+                Object result = future.join();
+                if (result == null) {
+                    composed.addFailure(queryName, "No result");
+                } else {
+                    composed.addResult(queryName, result);
+                }
+            } catch (CompletionException e) {
+                String message = (e.getCause() instanceof TimeoutException) ? "Timeout" : e.getCause().getMessage();
+                log.info("Query <{}> is failed: {}", queryName, message);
+                composed.addFailure(queryName, message);
+            } catch (Exception e) {
+                composed.addFailure(queryName, e.getMessage());
+            }
+        });
+        return composed;
+    }
+}
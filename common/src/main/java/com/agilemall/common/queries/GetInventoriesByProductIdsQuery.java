@@ -0,0 +1,12 @@
+package com.agilemall.common.queries;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class GetInventoriesByProductIdsQuery {
+    private List<String> productIds;
+}
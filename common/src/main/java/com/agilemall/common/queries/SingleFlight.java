@@ -0,0 +1,45 @@
+package com.agilemall.common.queries;
+/*
+- 목적: 같은 Key로 동시에 들어온 요청을 하나의 실행으로 합치고 결과를 모든 요청자에게 나누어 줌
+- 설명
+    - 처음 요청한 쪽(leader)만 실제로 실행하고, 실행이 끝나기 전에 들어온 같은 Key의 요청은 leader의 결과를 기다림
+    - 결과를 캐시하지 않음. 실행이 끝나면 Key를 삭제하므로 이후 요청은 다시 실행됨
+    - 요청자마다 결과 Future의 복사본을 리턴하므로, 한 요청자가 orTimeout 등으로 Future를 완료시켜도 다른 요청자에게 영향이 없음
+    - 결과 객체는 모든 요청자가 공유하므로 요청자는 결과 객체를 변경하지 않아야 함
+*/
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> newFuture = new CompletableFuture<>();
+        CompletableFuture<V> prevFuture = inFlight.putIfAbsent(key, newFuture);
+        if (prevFuture != null) return prevFuture.copy();
+
+        try {
+            call.get().whenComplete((result, error) -> {
+                //-- 완료 전에 Key를 삭제해야 완료 후 들어온 요청이 이전 결과를 받지 않음
+                inFlight.remove(key, newFuture);
+                if (error != null) {
+                    newFuture.completeExceptionally(error);
+                } else {
+                    newFuture.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, newFuture);
+            newFuture.completeExceptionally(e);
+        }
+        return newFuture.copy();
+    }
+
+    //-- 현재 실행 중인 Key 수
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,38 @@
+package com.agilemall.common.queries;
+/*
+- 목적: 같은 Query명과 조건으로 동시에 요청된 Query를 한번만 발송하고 결과를 나누어 줌
+- 설명
+    - 할인 행사 등으로 같은 주문현황, 같은 제품 정보를 동시에 많이 조회할 때, N개의 중복 요청이 한번의 Query로 처리됨
+    - Key는 'Query명 + 조건 + 응답 class'이므로 조건 객체는 equals/hashCode가 구현되어 있어야 함
+    - 사용 예
+    SingleFlightQueryGateway singleFlightQueryGateway = new SingleFlightQueryGateway(queryGateway);
+    DeliveryDTO delivery = singleFlightQueryGateway.query(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class).join();
+*/
+
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class SingleFlightQueryGateway {
+    private final QueryGateway queryGateway;
+    private final SingleFlight<List<Object>, Object> singleFlight = new SingleFlight<>();
+
+    public SingleFlightQueryGateway(QueryGateway queryGateway) {
+        this.queryGateway = queryGateway;
+    }
+
+    public <R> CompletableFuture<R> query(String queryName, Object payload, Class<R> responseType) {
+        List<Object> key = Arrays.asList(queryName, payload, responseType);
+        return singleFlight.execute(key,
+                        () -> queryGateway.query(queryName, payload, ResponseTypes.instanceOf(responseType))
+                                .thenApply(result -> (Object) result))
+                .thenApply(responseType::cast);
+    }
+
+    public QueryGateway getQueryGateway() {
+        return queryGateway;
+    }
+}
@@ -0,0 +1,39 @@
+package com.agilemall.common.vo;
+/*
+- 목적: ApiComposer로 동시에 요청한 Query들의 결과와 실패 내역을 담음
+*/
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Getter
+public class ComposedResultVO {
+    private final Map<String, Object> results = new LinkedHashMap<>();
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    public void addResult(String queryName, Object result) {
+        results.put(queryName, result);
+    }
+
+    public void addFailure(String queryName, String message) {
+        failures.put(queryName, message);
+    }
+
+    //-- Query명에 해당하는 결과를 리턴. 실패한 Query는 null을 리턴함
+    public <R> R get(String queryName, Class<R> responseType) {
+        return responseType.cast(results.get(queryName));
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public String getFailureMessage() {
+        return failures.entrySet().stream()
+                .map(entry -> entry.getKey() + ": " + entry.getValue())
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,132 @@
+package com.agilemall.common.config;
+/*
+- 목적: CompressingSerializer의 압축/해제 round trip과 threshold, dictionary version 처리 확인
+*/
+
+import com.agilemall.common.dto.PaymentDTO;
+import com.agilemall.common.dto.PaymentDetailDTO;
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.serialization.SerializationException;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressingSerializerTests {
+    private static final String ORDER_ID = "ORDER_000000001";
+    private static final String PAYMENT_ID = "PAY_00000000001";
+
+    private final Serializer delegate = CompactSerializer.create(CompactSerializer.CBOR, xStream());
+
+    @Test
+    void belowThresholdIsNotCompressed() {
+        PaymentDTO payment = payment(1);
+        byte[] original = delegate.serialize(payment, byte[].class).getData();
+        Serializer serializer = CompressingSerializer.wrap(delegate, original.length + 1);
+
+        SerializedObject<byte[]> serialized = serializer.serialize(payment, byte[].class);
+
+        assertFalse(CompressingSerializer.isCompressed(serialized.getData()));
+        assertArrayEquals(original, serialized.getData());
+        assertEquals(payment, serializer.deserialize(serialized));
+    }
+
+    @Test
+    void aboveThresholdIsCompressedWithCurrentDictionary() {
+        PaymentDTO payment = payment(5);
+        byte[] original = delegate.serialize(payment, byte[].class).getData();
+        Serializer serializer = CompressingSerializer.wrap(delegate, original.length - 1);
+
+        SerializedObject<byte[]> serialized = serializer.serialize(payment, byte[].class);
+        byte[] data = serialized.getData();
+
+        assertTrue(CompressingSerializer.isCompressed(data));
+        assertEquals(CompressingSerializer.DICTIONARY_VERSION, data[1]);
+        assertTrue(data.length < original.length);
+        assertEquals(payment, serializer.deserialize(serialized));
+    }
+
+    @Test
+    void compressAndDecompress() {
+        byte[] original = delegate.serialize(payment(3), byte[].class).getData();
+
+        byte[] compressed = CompressingSerializer.compress(original);
+
+        assertTrue(CompressingSerializer.isCompressed(compressed));
+        assertArrayEquals(original, CompressingSerializer.decompress(compressed));
+    }
+
+    @Test
+    void decompressPreviousDictionaryVersion() {
+        //-- version 1 dictionary로 압축되어 이미 저장된 데이터도 읽을 수 있어야 함
+        byte[] original = delegate.serialize(payment(3), byte[].class).getData();
+        byte[] compressed = deflate(original, CompressingSerializer.DICTIONARY_V1, (byte) 1);
+
+        assertArrayEquals(original, CompressingSerializer.decompress(compressed));
+
+        Serializer serializer = CompressingSerializer.wrap(delegate, 1);
+        Object deserialized = serializer.deserialize(
+                new SimpleSerializedObject<>(compressed, byte[].class, delegate.typeForClass(PaymentDTO.class)));
+        assertEquals(payment(3), deserialized);
+    }
+
+    @Test
+    void unknownDictionaryVersionIsRejected() {
+        byte[] compressed = CompressingSerializer.compress("agilemall".getBytes(StandardCharsets.UTF_8));
+        byte[] unknown = Arrays.copyOf(compressed, compressed.length);
+        unknown[1] = 99;
+
+        assertThrows(SerializationException.class, () -> CompressingSerializer.decompress(unknown));
+    }
+
+    private static byte[] deflate(byte[] data, byte[] dictionary, byte version) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(0x00);
+            out.write(version);
+            byte[] buffer = new byte[256];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static PaymentDTO payment(int detailCount) {
+        List<PaymentDetailDTO> details = new ArrayList<>();
+        for (int i = 0; i < detailCount; i++) {
+            details.add(new PaymentDetailDTO(ORDER_ID, PAYMENT_ID, "10", 1000 * (i + 1)));
+        }
+        int totalAmt = details.stream().mapToInt(PaymentDetailDTO::getPaymentAmt).sum();
+        return new PaymentDTO(ORDER_ID, PAYMENT_ID, totalAmt, "10", details);
+    }
+
+    private static XStream xStream() {
+        XStream xStream = new XStream();
+        xStream.allowTypesByWildcard(new String[] {
+                "com.agilemall.**"
+        });
+        return xStream;
+    }
+}
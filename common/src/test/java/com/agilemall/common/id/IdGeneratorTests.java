@@ -0,0 +1,125 @@
+package com.agilemall.common.id;
+/*
+- 목적: IdGenerator가 고정길이(15자)의 증가하는 ID를 동시 요청에도 중복 없이 생성하는지 확인
+- 설명
+    - 노드ID는 build.gradle의 test task에서 System property 'agilemall.node-id'로 지정함
+*/
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTests {
+    private static final String PREFIX = "ORDER_";
+    private static final int THREAD_COUNT = 8;
+    private static final int IDS_PER_THREAD = 5_000;
+
+    @Test
+    void idsHaveFixedLength() {
+        for (IdGenerator generator : List.of(IdGenerator.ORDER, IdGenerator.PAYMENT, IdGenerator.DELIVERY, IdGenerator.REPORT)) {
+            String id = generator.nextId();
+            assertEquals(IdGenerator.MAX_ID_LENGTH, id.length(), id);
+            assertTrue(id.matches("[A-Z]+_[0-9A-Z]+"), id);
+        }
+    }
+
+    @Test
+    void idsIncreaseAcrossThreads() throws Exception {
+        IdGenerator generator = new IdGenerator(PREFIX);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> ids = new ArrayList<>(IDS_PER_THREAD);
+                    for (int j = 0; j < IDS_PER_THREAD; j++) ids.add(generator.nextId());
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<String> allIds = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                List<String> ids = future.get();
+                //-- 고정길이이므로 문자열 비교 순서가 생성 순서와 같음
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " >= " + ids.get(i));
+                }
+                allIds.addAll(ids);
+            }
+            assertEquals(THREAD_COUNT * IDS_PER_THREAD, allIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sequenceOverflowMovesToNextTick() {
+        long seconds = IdGenerator.EPOCH_SECONDS + 100;
+        AtomicLong clock = new AtomicLong(seconds);
+        IdGenerator generator = new IdGenerator(PREFIX, clock::get);
+
+        String prev = null;
+        for (long sequence = 0; sequence <= IdGenerator.SEQUENCE_MASK; sequence++) {
+            String id = generator.nextId();
+            assertEquals(100, secondsOf(id));
+            assertEquals(sequence, sequenceOf(id));
+            prev = id;
+        }
+
+        //-- 1초의 순번을 모두 쓰면 다음 초의 순번을 사용함
+        String overflowed = generator.nextId();
+        assertEquals(101, secondsOf(overflowed));
+        assertEquals(0, sequenceOf(overflowed));
+        assertTrue(prev.compareTo(overflowed) < 0);
+
+        //-- 시스템 시간이 뒤로 가도 마지막 ID보다 큰 ID를 생성함
+        clock.set(seconds - 10);
+        String afterClockBack = generator.nextId();
+        assertEquals(101, secondsOf(afterClockBack));
+        assertEquals(1, sequenceOf(afterClockBack));
+        assertEquals(IdGenerator.nodeId(), nodeIdOf(afterClockBack));
+    }
+
+    @Test
+    void nodeIdMustBeInRange() {
+        assertEquals(0, IdGenerator.resolveNodeId("0"));
+        assertEquals(IdGenerator.MAX_NODE_ID, IdGenerator.resolveNodeId(" " + IdGenerator.MAX_NODE_ID + " "));
+
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.resolveNodeId("-1"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.resolveNodeId(String.valueOf(IdGenerator.MAX_NODE_ID + 1)));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.resolveNodeId("node-1"));
+        assertThrows(IllegalStateException.class, () -> IdGenerator.resolveNodeId(null));
+        assertThrows(IllegalStateException.class, () -> IdGenerator.resolveNodeId(" "));
+    }
+
+    private static long valueOf(String id) {
+        return Long.parseLong(id.substring(PREFIX.length()), IdGenerator.RADIX);
+    }
+
+    private static long secondsOf(String id) {
+        return valueOf(id) >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS);
+    }
+
+    private static long nodeIdOf(String id) {
+        return (valueOf(id) >>> IdGenerator.SEQUENCE_BITS) & IdGenerator.MAX_NODE_ID;
+    }
+
+    private static long sequenceOf(String id) {
+        return valueOf(id) & IdGenerator.SEQUENCE_MASK;
+    }
+}
@@ -1,12 +1,14 @@
 package com.agilemall.delivery;
 
+import com.agilemall.common.config.SerializerConfig;
+import com.agilemall.common.config.VirtualThreadConfig;
 import com.agilemall.delivery.config.AxonConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
-@Import({ AxonConfig.class })
+@Import({ AxonConfig.class, SerializerConfig.class, VirtualThreadConfig.class })
 public class DeliveryApplication {
 
     public static void main(String[] args) {
@@ -18,15 +18,14 @@ import org.axonframework.eventsourcing.EventSourcingHandler;
 import org.axonframework.modelling.command.AggregateIdentifier;
 import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.modelling.command.AggregateMember;
+import org.axonframework.serialization.Revision;
 import org.axonframework.spring.stereotype.Aggregate;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Slf4j
-@Aggregate(snapshotTriggerDefinition = "snapshotTrigger", cache = "snapshotCache")
+@Aggregate(snapshotTriggerDefinition = "snapshotTrigger", cache = "deliveryAggregateCache")
+@Revision("1")    //snapshot 구조 버전. 필드 구조를 바꾸면 올려서 이전 snapshot은 무시하고 Event로 로딩함
 //@Aggregate
 public class DeliveryAggregate {
     @AggregateIdentifier
@@ -36,7 +35,8 @@ public class DeliveryAggregate {
     @AggregateMember
     private String deliveryStatus;
 
-    private final List<DeliveryDTO> aggregateHistory = new ArrayList<>();
+    //-- 보상처리(삭제 취소) 시 되돌릴 직전 배송 정보. 바로 이전 정보만 담아 Aggregate와 snapshot 크기를 일정하게 유지함
+    private DeliveryDTO previousState;
 
     public DeliveryAggregate() {
 
@@ -64,7 +64,7 @@ public class DeliveryAggregate {
         this.deliveryId = event.getDeliveryId();
         this.deliveryStatus = event.getDeliveryStatus();
 
-        this.aggregateHistory.add(cloneAggregate(this));
+        this.previousState = cloneAggregate(this);
     }
 
     @CommandHandler
@@ -107,8 +107,7 @@ public class DeliveryAggregate {
         this.deliveryStatus = event.getDeliveryStatus();
 
         //-- 수정 또는 삭제 실패 시 이전 정보로 rollback시에만 사용되므로 바로 이전 정보만 담고 있으면 됨
-        this.aggregateHistory.clear();
-        this.aggregateHistory.add(cloneAggregate(this));
+        this.previousState = cloneAggregate(this);
     }
 
     //================== 배송 정보 삭제 요청 Command 처리 =====================
@@ -131,8 +130,8 @@ public class DeliveryAggregate {
         log.info("[@EventSourcingHandler] Executing CancelDeleteDeliveryCommand for Delivery Id : {}", cancelDeleteDeliveryCommand.getOrderId());
 
         //-- 삭제 취소시 rollback은 이전 배송정보를 생성하는 것이므로 이전 배송정보를 읽어 생성 요청 Event를 발행
-        if (this.aggregateHistory.isEmpty()) return;
-        DeliveryDTO delivery = this.aggregateHistory.get(this.aggregateHistory.size() - 1);
+        if (this.previousState == null) return;
+        DeliveryDTO delivery = this.previousState;
 
         CreatedDeliveryEvent event = new CreatedDeliveryEvent();
         event.setDeliveryId(delivery.getDeliveryId());
@@ -1,14 +1,20 @@
 package com.agilemall.delivery.config;
 
-import com.agilemall.common.config.Constants;
+import com.agilemall.common.config.AdaptiveSnapshotTriggerDefinition;
+import com.agilemall.common.config.BoundedCache;
 import com.thoughtworks.xstream.XStream;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.axonframework.common.caching.Cache;
-import org.axonframework.common.caching.WeakReferenceCache;
-import org.axonframework.eventsourcing.EventCountSnapshotTriggerDefinition;
 import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
 import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
 
 @Configuration
 public class AxonConfig {
@@ -19,16 +25,26 @@ public class AxonConfig {
         xStream.allowTypesByWildcard(new String[] {
                 "com.agilemall.**"
         });
+        //-- 이전 버전 snapshot의 aggregateHistory(이전 상태 목록) 항목은 무시하고 읽음. Aggregate는 previousState만 보관함
+        xStream.ignoreUnknownElements("aggregateHistory");
         return xStream;
     }
 
+    //-- Aggregate 로딩 소요시간, 재생한 Event 크기가 기준을 넘으면 snapshot 생성(AdaptiveSnapshotTriggerDefinition 참조)
     @Bean
-    public SnapshotTriggerDefinition snapshotTrigger(Snapshotter snapshotter) {
-        return new EventCountSnapshotTriggerDefinition(snapshotter, Constants.SNAPSHOT_COUNT);
+    public SnapshotTriggerDefinition snapshotTrigger(Snapshotter snapshotter,
+                                                     @Qualifier("eventSerializer") Serializer eventSerializer,
+                                                     MeterRegistry meterRegistry, Environment environment) {
+        return new AdaptiveSnapshotTriggerDefinition(snapshotter, eventSerializer, meterRegistry, environment);
     }
 
+    //-- DeliveryAggregate 전용 Cache. 최대 건수를 넘거나 미사용 만료시간이 지나면 오래 사용되지 않은 Aggregate부터 제거함(BoundedCache 참조)
+    //-- WeakReferenceCache와 달리 GC로 비워지지 않으며, hit/miss/eviction은 cache.* Metric(tag cache=deliveryAggregateCache)으로 확인
     @Bean
-    public Cache snapshotCache() {
-        return new WeakReferenceCache();
+    public Cache deliveryAggregateCache(MeterRegistry meterRegistry,
+                                        @Value("${agilemall.aggregate-cache.DeliveryAggregate.max-size:10000}") long maxSize,
+                                        @Value("${agilemall.aggregate-cache.DeliveryAggregate.expire-seconds:600}") long expireSeconds) {
+        return new BoundedCache(maxSize, Duration.ofSeconds(expireSeconds))
+                .registerMetrics(meterRegistry, "deliveryAggregateCache");
     }
 }
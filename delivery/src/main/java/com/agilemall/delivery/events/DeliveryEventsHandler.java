@@ -1,4 +1,10 @@
 package com.agilemall.delivery.events;
+/*
+- 목적: DeliveryAggregate에서 생성된 Event 처리를 수행
+- 설명
+    - 배송 정보가 변경되면 Queries.DELIVERY_BY_ORDER_ID Subscription Query 구독자에게 변경된 배송 정보를 전송함
+    - 배송 정보가 삭제되면 해당 주문의 Subscription Query를 종료함
+*/
 
 import com.agilemall.common.command.update.UpdateReportDeliveryStatusCommand;
 import com.agilemall.common.events.create.CancelledCreateDeliveryEvent;
@@ -8,7 +14,9 @@ import com.agilemall.common.events.delete.DeletedDeliveryEvent;
 import com.agilemall.common.events.delete.FailedDeleteDeliveryEvent;
 import com.agilemall.common.events.update.CancelledUpdatePaymentEvent;
 import com.agilemall.common.queries.GetReportId;
+import com.agilemall.common.queries.Queries;
 import com.agilemall.delivery.entity.Delivery;
+import com.agilemall.delivery.queries.DeliveryQueryHandler;
 import com.agilemall.delivery.repository.DeliveryRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.gateway.CommandGateway;
@@ -19,6 +27,8 @@ import org.axonframework.eventhandling.ResetHandler;
 import org.axonframework.eventhandling.gateway.EventGateway;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryMessage;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -35,13 +45,16 @@ public class DeliveryEventsHandler {
     private transient final CommandGateway commandGateway;
     private transient final EventGateway eventGateway;
     private transient final QueryGateway queryGateway;
+    private transient final QueryUpdateEmitter queryUpdateEmitter;
     @Autowired
     public DeliveryEventsHandler(DeliveryRepository deliveryRepository, CommandGateway commandGateway,
-                                 EventGateway eventGateway, QueryGateway queryGateway) {
+                                 EventGateway eventGateway, QueryGateway queryGateway,
+                                 QueryUpdateEmitter queryUpdateEmitter) {
         this.deliveryRepository = deliveryRepository;
         this.commandGateway = commandGateway;
         this.eventGateway = eventGateway;
         this.queryGateway = queryGateway;
+        this.queryUpdateEmitter = queryUpdateEmitter;
     }
     @EventHandler
     private void on(CreatedDeliveryEvent event) {
@@ -50,6 +63,7 @@ public class DeliveryEventsHandler {
             Delivery delivery = new Delivery();
             BeanUtils.copyProperties(event, delivery);
             deliveryRepository.save(delivery);
+            emitDeliveryUpdate(delivery);
         } catch(Exception e) {
             log.error("Error is occurred during handle CreatedDeliveryEvent: {}", e.getMessage());
             if(!event.isCompensation()) {   //보상처리가 아닌 경우만 수행
@@ -65,6 +79,7 @@ public class DeliveryEventsHandler {
         Delivery delivery = getEntity(event.getDeliveryId());
         if(delivery != null) {
             deliveryRepository.delete(delivery);
+            completeDeliverySubscription(delivery.getOrderId());
         }
     }
 
@@ -76,6 +91,7 @@ public class DeliveryEventsHandler {
         if(delivery != null) {
             delivery.setDeliveryStatus(event.getDeliveryStatus());
             deliveryRepository.save(delivery);
+            emitDeliveryUpdate(delivery);
 
             //-- Send UpdateReportDeliveryStatusCommand to Report service
             String reportId = queryGateway.query(new GetReportId(event.getOrderId()),
@@ -112,6 +128,7 @@ public class DeliveryEventsHandler {
 
         try {
             deliveryRepository.delete(delivery);
+            completeDeliverySubscription(delivery.getOrderId());
         } catch(Exception e) {
             deliveryRepository.delete(delivery);
             eventGateway.publish(new FailedDeleteDeliveryEvent(event.getDeliveryId(), event.getOrderId()));
@@ -129,6 +146,19 @@ public class DeliveryEventsHandler {
         return delivery;
     }
 
+    //-- Subscription Query 구독자에게 변경 전송. Unit of Work가 commit된 후에 전송됨
+    private void emitDeliveryUpdate(Delivery delivery) {
+        queryUpdateEmitter.emit(q -> isDeliverySubscription(q, delivery.getOrderId()), DeliveryQueryHandler.toDeliveryDTO(delivery));
+    }
+
+    private void completeDeliverySubscription(String orderId) {
+        queryUpdateEmitter.complete(q -> isDeliverySubscription(q, orderId));
+    }
+
+    private boolean isDeliverySubscription(SubscriptionQueryMessage<?, ?, ?> query, String orderId) {
+        return Queries.DELIVERY_BY_ORDER_ID.equals(query.getQueryName()) && orderId.equals(query.getPayload());
+    }
+
     @ResetHandler
     private void replayAll() {
         log.info("[DeliveryEventHandler] Executing replayAll");
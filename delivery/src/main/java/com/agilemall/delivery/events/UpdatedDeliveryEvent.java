@@ -1,8 +1,10 @@
 package com.agilemall.delivery.events;
 
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 @Data
+@Revision("1")
 public class UpdatedDeliveryEvent {
     private String deliveryId;
     private String orderId;
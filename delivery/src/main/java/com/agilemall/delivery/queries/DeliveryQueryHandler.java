@@ -27,14 +27,18 @@ public class DeliveryQueryHandler {
        log.info("[@QueryHandler] Handle <{}> for Order Id: {}", Queries.DELIVERY_BY_ORDER_ID, orderId);
         Optional<Delivery> optDelivery = deliveryRepository.findByOrderId(orderId);
         if(optDelivery.isPresent()) {
-            Delivery delivery = optDelivery.get();
-            DeliveryDTO deliveryDTO = new DeliveryDTO();
-            BeanUtils.copyProperties(delivery, deliveryDTO);
-            return deliveryDTO;
+            return toDeliveryDTO(optDelivery.get());
         } else {
             log.info("Can't find delivery info for Order Id:{}", orderId);
             return null;
         }
 
     }
+
+    //-- Delivery entity를 Query 응답용 DeliveryDTO로 변환. Subscription Query 변경 전송 시에도 사용함
+    public static DeliveryDTO toDeliveryDTO(Delivery delivery) {
+        DeliveryDTO deliveryDTO = new DeliveryDTO();
+        BeanUtils.copyProperties(delivery, deliveryDTO);
+        return deliveryDTO;
+    }
 }
@@ -1,6 +1,6 @@
 package com.agilemall.delivery.service;
 
-import com.agilemall.common.command.update.UpdateInventoryQtyCommand;
+import com.agilemall.common.command.update.UpdateInventoriesQtyCommand;
 import com.agilemall.common.config.Constants;
 import com.agilemall.common.dto.DeliveryDTO;
 import com.agilemall.common.dto.DeliveryStatusEnum;
@@ -18,7 +18,6 @@ import org.axonframework.queryhandling.QueryGateway;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -109,37 +108,21 @@ public class DeliveryService {
             }
 
             log.info("Get Order details: {}", orderDetails);
-            UpdateInventoryQtyCommand cmd;
-            List<OrderDetailDTO> successList = new ArrayList<>();
-            for(OrderDetailDTO item:orderDetails) {
-                cmd = UpdateInventoryQtyCommand.builder()
-                        .productId(item.getProductId())
-                        .adjustType(InventoryQtyAdjustTypeEnum.DECREASE.value())
-                        .adjustQty(item.getQty())
-                        .build();
-                try {
-                    commandGateway.sendAndWait(cmd, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-                    successList.add(item);
-                } catch(Exception e) {
-                    log.error("Fail to send <InventoryQtyUpdateCommand>: {}", e.getMessage());
-                }
-            }
 
-            //실패한 처리가 있을때는 rollback 처리함
-            if(successList.size() < orderDetails.size()) {
-                for(OrderDetailDTO item:successList) {
-                    cmd = UpdateInventoryQtyCommand.builder()
-                            .productId(item.getProductId())
-                            .adjustType(InventoryQtyAdjustTypeEnum.INCREASE.value())
-                            .adjustQty(item.getQty())
-                            .build();
-                    commandGateway.sendAndWait(cmd, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-                }
-                retVo.setReturnCode(false);
-                retVo.setReturnMessage("Fail to update inventory quantity");
-            } else {
+            //-- 모든 상품의 재고를 하나의 Command로 차감함. 실패 시 Inventory 서비스에서 모두 rollback되므로 되돌리는 처리가 필요 없음
+            UpdateInventoriesQtyCommand cmd = UpdateInventoriesQtyCommand.builder()
+                    .orderId(deliveryDTO.getOrderId())
+                    .adjustType(InventoryQtyAdjustTypeEnum.DECREASE.value())
+                    .orderDetails(orderDetails)
+                    .build();
+            try {
+                commandGateway.sendAndWait(cmd, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
                 retVo.setReturnCode(true);
                 retVo.setReturnMessage("Success to update inventory quantity");
+            } catch(Exception e) {
+                log.error("Fail to send <UpdateInventoriesQtyCommand>: {}", e.getMessage());
+                retVo.setReturnCode(false);
+                retVo.setReturnMessage("Fail to update inventory quantity");
             }
         } catch(Exception e) {
             retVo.setReturnCode(false);
@@ -0,0 +1,54 @@
+package com.agilemall.inventory.command;
+/*
+- 목적: 여러 제품의 재고량을 하나의 Command로 조정
+- 설명
+    - 주문의 모든 상품 재고를 하나의 transaction에서 조정함. 하나라도 실패(제품 없음 등)하면 모두 rollback됨
+      - 이전에는 상품별로 UpdateInventoryQtyCommand를 보내고, 실패 시 성공한 상품을 되돌리는 Command를 다시 보냈음
+    - Inventory Aggregate는 로딩 시 제품ID별 lock을 잡고 transaction이 끝날 때까지 유지함
+      - 여러 제품을 조정하는 요청끼리 서로의 lock을 기다리지(deadlock) 않도록 항상 제품ID 순서로 로딩함
+      - DB update도 제품ID 순서로 수행됨(hibernate.order_updates)
+    - 같은 제품이 여러 줄이면 수량을 합쳐 한번만 조정함
+    - 제품별 UpdatedInventoryQtyEvent는 UpdateInventoryQtyCommand와 같이 발행되며, transaction이 commit될 때 함께 발행됨
+*/
+
+import com.agilemall.common.command.update.UpdateInventoriesQtyCommand;
+import com.agilemall.common.dto.OrderDetailDTO;
+import com.agilemall.inventory.entity.Inventory;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.config.Configuration;
+import org.axonframework.modelling.command.Repository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class InventoryCommandHandler {
+
+    private final Configuration axonConfiguration;
+
+    //-- Axon Configuration은 Command Handler 등록 후에 완성되므로 처음 사용할 때 가져옴
+    @Autowired
+    public InventoryCommandHandler(@Lazy Configuration axonConfiguration) {
+        this.axonConfiguration = axonConfiguration;
+    }
+
+    @CommandHandler
+    private void handle(UpdateInventoriesQtyCommand updateInventoriesQtyCommand) {
+        log.info("[@CommandHandler] Executing <UpdateInventoriesQtyCommand> for Order Id:{}", updateInventoriesQtyCommand.getOrderId());
+
+        //-- 제품ID 순서로 정렬하고 같은 제품은 수량을 합침
+        Map<String, Integer> adjustQtyByProductId = updateInventoriesQtyCommand.getOrderDetails().stream()
+                .collect(Collectors.toMap(OrderDetailDTO::getProductId, OrderDetailDTO::getQty, Integer::sum, TreeMap::new));
+
+        Repository<Inventory> inventoryRepository = axonConfiguration.repository(Inventory.class);
+        adjustQtyByProductId.forEach((productId, adjustQty) ->
+                inventoryRepository.load(productId).execute(
+                        inventory -> inventory.adjustQty(updateInventoriesQtyCommand.getAdjustType(), adjustQty)));
+    }
+}
@@ -4,11 +4,14 @@ package com.agilemall.inventory.entity;
 - 설명
     - Event replay로 최종 상태를 계산하는 일반 Aggregate가 아닌 DB에 최종 상태를 저장하는 State stored Aggregate를 정의
     - Inventory는 제품 원장 데이터이므로 최종상태만 관리하면 되고 DB 손상시엔 백업 복구등으로 복원할 수 있으므로 Event sourcing 패턴 미적용
+    - 제품 등록/재고 변경 시 Event를 발행하여 Order service가 제품 정보 복제본(InventoryReplicaService)을 갱신하게 함
 */
 
 import com.agilemall.common.command.create.CreateInventoryCommand;
 import com.agilemall.common.command.update.UpdateInventoryQtyCommand;
 import com.agilemall.common.dto.InventoryQtyAdjustTypeEnum;
+import com.agilemall.common.events.create.CreatedInventoryEvent;
+import com.agilemall.common.events.update.UpdatedInventoryQtyEvent;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -17,6 +20,7 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.CommandHandler;
 import org.axonframework.modelling.command.AggregateIdentifier;
+import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.modelling.command.AggregateMember;
 import org.axonframework.spring.stereotype.Aggregate;
 
@@ -61,6 +65,12 @@ public class Inventory implements Serializable {
         this.unitPrice = createInventoryCommand.getUnitPrice();
         this.inventoryQty = createInventoryCommand.getInventoryQty();
 
+        CreatedInventoryEvent createdInventoryEvent = new CreatedInventoryEvent();
+        createdInventoryEvent.setProductId(this.productId);
+        createdInventoryEvent.setProductName(this.productName);
+        createdInventoryEvent.setUnitPrice(this.unitPrice);
+        createdInventoryEvent.setInventoryQty(this.inventoryQty);
+        AggregateLifecycle.apply(createdInventoryEvent);
     }
 
 
@@ -69,13 +79,24 @@ public class Inventory implements Serializable {
     private void handle(UpdateInventoryQtyCommand updateInventoryQtyCommand) {
         log.info("[@CommandHandler] Executing <updateInventoryQtyCommand> for productId:{}", updateInventoryQtyCommand.getProductId());
 
+        adjustQty(updateInventoryQtyCommand.getAdjustType(), updateInventoryQtyCommand.getAdjustQty());
+    }
+
+    //-- 재고량을 조정하고 Event를 발행. 여러 제품을 한번에 조정할 때는 InventoryCommandHandler에서 호출함
+    public void adjustQty(String adjustType, int adjustQty) {
         //--State Stored Aggregator 는 자신의 상태 업데이트를 CommandHandler 에서 수행
-        if(InventoryQtyAdjustTypeEnum.INCREASE.value().equals(updateInventoryQtyCommand.getAdjustType())) {
-            this.inventoryQty += updateInventoryQtyCommand.getAdjustQty();
-        } else if(InventoryQtyAdjustTypeEnum.DECREASE.value().equals(updateInventoryQtyCommand.getAdjustType())) {
-            this.inventoryQty -= updateInventoryQtyCommand.getAdjustQty();
+        if(InventoryQtyAdjustTypeEnum.INCREASE.value().equals(adjustType)) {
+            this.inventoryQty += adjustQty;
+        } else if(InventoryQtyAdjustTypeEnum.DECREASE.value().equals(adjustType)) {
+            this.inventoryQty -= adjustQty;
             if(this.inventoryQty < 0) this.inventoryQty = 0;
         }
 
+        UpdatedInventoryQtyEvent updatedInventoryQtyEvent = new UpdatedInventoryQtyEvent();
+        updatedInventoryQtyEvent.setProductId(this.productId);
+        updatedInventoryQtyEvent.setAdjustType(adjustType);
+        updatedInventoryQtyEvent.setAdjustQty(adjustQty);
+        updatedInventoryQtyEvent.setInventoryQty(this.inventoryQty);
+        AggregateLifecycle.apply(updatedInventoryQtyEvent);
     }
 }
@@ -7,9 +7,13 @@ package com.agilemall.inventory.queries;
     - Query객체로 요청은 아래와 같이 요청됨. Query객체에 Query수행에 필요한 정보가 같이 들어오게 됨.
     getInventoryByProductIdQuery = new GetInventoryByProductIdQuery(orderDetail.getProductId());
     inventoryDTO = queryGateway.query(getInventoryByProductIdQuery, ResponseTypes.instanceOf(InventoryDTO.class)).join();
+    - 여러 제품을 한번에 조회할 때는 GetInventoriesByProductIdsQuery를 이용하여 한번의 요청으로 처리함
+    - 같은 제품ID로 동시에 들어온 GetInventoryByProductIdQuery는 한번만 DB를 조회하고 결과를 나누어 줌(SingleFlight)
 */
 import com.agilemall.common.dto.InventoryDTO;
+import com.agilemall.common.queries.GetInventoriesByProductIdsQuery;
 import com.agilemall.common.queries.GetInventoryByProductIdQuery;
+import com.agilemall.common.queries.SingleFlight;
 import com.agilemall.inventory.entity.Inventory;
 import com.agilemall.inventory.repository.InventoryRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -17,13 +21,17 @@ import org.axonframework.queryhandling.QueryHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class InventoryQueryHandler {
 
     private final InventoryRepository inventoryRepository;
+    private final SingleFlight<String, InventoryDTO> singleFlight = new SingleFlight<>();
     @Autowired
     public InventoryQueryHandler(InventoryRepository inventoryRepository) {
         this.inventoryRepository = inventoryRepository;
@@ -33,7 +41,13 @@ public class InventoryQueryHandler {
     private InventoryDTO handle(GetInventoryByProductIdQuery query) {
         log.info("[@QueryHandler] Handle <GetInventoryByProductIdQuery> for Product Id: {}", query.getProductId());
 
-        Optional <Inventory> optInventory = inventoryRepository.findById(query.getProductId());
+        //-- 처음 요청한 Thread에서 DB를 조회하고, 조회 중 들어온 같은 제품ID 요청은 그 결과를 기다림
+        return singleFlight.execute(query.getProductId(),
+                () -> CompletableFuture.completedFuture(findInventory(query.getProductId()))).join();
+    }
+
+    private InventoryDTO findInventory(String productId) {
+        Optional <Inventory> optInventory = inventoryRepository.findById(productId);
         if(optInventory.isPresent()) {
             Inventory inventory = optInventory.get();
             return new InventoryDTO(
@@ -43,4 +57,16 @@ public class InventoryQueryHandler {
             return null;
         }
     }
+
+    //-- 여러 제품ID에 해당하는 재고 정보를 한번의 DB 조회로 리턴. 없는 제품ID는 결과에서 제외됨
+    @QueryHandler
+    private List<InventoryDTO> handle(GetInventoriesByProductIdsQuery query) {
+        log.info("[@QueryHandler] Handle <GetInventoriesByProductIdsQuery> for Product Ids: {}", query.getProductIds());
+
+        return inventoryRepository.findAllById(query.getProductIds()).stream()
+                .map(inventory -> new InventoryDTO(
+                        inventory.getProductId(), inventory.getProductName(),
+                        inventory.getUnitPrice(), inventory.getInventoryQty()))
+                .collect(Collectors.toList());
+    }
 }
@@ -1,15 +1,20 @@
 package com.agilemall.order;
 
+import com.agilemall.common.config.SerializerConfig;
+import com.agilemall.common.config.VirtualThreadConfig;
+import com.agilemall.common.id.IdGenerator;
 import com.agilemall.order.config.AxonConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
-@Import({ AxonConfig.class })
+@Import({ AxonConfig.class, SerializerConfig.class, VirtualThreadConfig.class })
 public class OrderApplication {
 
     public static void main(String[] args) {
+        //-- 주문/결제/배송/리포트 ID를 생성하므로 노드ID(AGILEMALL_NODE_ID)가 지정되지 않았으면 시작하지 않음
+        IdGenerator.nodeId();
         SpringApplication.run(OrderApplication.class, args);
     }
 }
@@ -32,18 +32,19 @@ import org.axonframework.eventsourcing.EventSourcingHandler;
 import org.axonframework.modelling.command.AggregateIdentifier;
 import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.modelling.command.AggregateMember;
+import org.axonframework.serialization.Revision;
 import org.axonframework.spring.stereotype.Aggregate;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
-@Aggregate(snapshotTriggerDefinition = "snapshotTrigger", cache="snapshotCache")
+@Aggregate(snapshotTriggerDefinition = "snapshotTrigger", cache="orderAggregateCache")
+@Revision("1")    //snapshot 구조 버전. 필드 구조를 바꾸면 올려서 이전 snapshot은 무시하고 Event로 로딩함
 //@Aggregate
 public class OrderAggregate {
     @AggregateIdentifier        //각 Aggregate 객체를 구별하는 유일한 필드
@@ -66,8 +67,9 @@ public class OrderAggregate {
 
     /* Aggregate객체를 저장
     - Update 트랜잭션 실패 시 이전의 Aggregate객체로 되돌리기 위해 이전 Aggregate정보를 담음
+    - 바로 이전 정보만 담아 수정 횟수와 관계없이 Aggregate(Cache)와 snapshot 크기를 일정하게 유지함
     */
-    private final List<OrderDTO> aggregateHistory = new ArrayList<>();
+    private OrderDTO previousState;
 
     //Axon framework동작을 위해 비어있는 생성자는 반드시 있어야 함
     public OrderAggregate() {
@@ -181,8 +183,7 @@ public class OrderAggregate {
         log.info("[@EventSourcingHandler] Executing <UpdatedOrderEvent> for Order Id: {}", event.getOrderId());
 
         //-- 수정 또는 삭제 실패 시 이전 정보로 rollback시에만 사용되므로 바로 이전 정보만 담고 있으면 됨
-        this.aggregateHistory.clear();
-        this.aggregateHistory.add(cloneAggregate(this));    //보상처리를 위해 이전 정보 저장
+        this.previousState = cloneAggregate(this);    //보상처리를 위해 이전 정보 저장
 
         this.orderDatetime = event.getOrderDatetime();
         this.orderStatus = event.getOrderStatus();
@@ -226,7 +227,7 @@ public class OrderAggregate {
     /*
     - 목적: 주문 수정 처리 취소를 위한 사전수행/처리 이벤트 생성
     - 설명
-      - 수정 이전의 상태로 돌리기 위해 aggregateHistory에 저장된 이전 Aggregate객체를 이용
+      - 수정 이전의 상태로 돌리기 위해 previousState에 저장된 이전 Aggregate객체를 이용
       - 이전 Aggregate객체 정보를 읽어 주문 수정 Command를 다시 보냄
         이때 이 요청은 보상처리 Command임을 나타내는 isCompensation을 true로 설정함
         이 정보는 보상 트랜잭션 실패 시 무한 루프 방지를 위해 이용됨(*.saga > OrderUpdatingSaga: UpdatedOrderEvent참조)
@@ -237,8 +238,8 @@ public class OrderAggregate {
 
         AggregateLifecycle.apply(new CancelledUpdateOrderEvent(cancelUpdateOrderCommand.getOrderId()));
 
-        if(this.aggregateHistory.isEmpty()) return;
-        OrderDTO order = this.aggregateHistory.get(this.aggregateHistory.size() - 1);
+        if(this.previousState == null) return;
+        OrderDTO order = this.previousState;
 
         UpdatedOrderEvent event = new UpdatedOrderEvent();
         event.setOrderId(order.getOrderId());
@@ -257,7 +258,8 @@ public class OrderAggregate {
     @CommandHandler
     private void handle(DeleteOrderCommand deleteOrderCommand) {
         log.info("[@EventSourcingHandler] Executing <DeleteOrderCommand> for Order Id: {}", deleteOrderCommand.getOrderId());
-        AggregateLifecycle.apply(new DeletedOrderEvent(deleteOrderCommand.getOrderId()));
+        AggregateLifecycle.apply(new DeletedOrderEvent(deleteOrderCommand.getOrderId(), deleteOrderCommand.getPaymentId(),
+                deleteOrderCommand.getDeliveryId(), deleteOrderCommand.getReportId()));
     }
     @EventSourcingHandler
     private void on(DeletedOrderEvent event) {
@@ -9,4 +9,8 @@ import org.axonframework.modelling.command.TargetAggregateIdentifier;
 public class DeleteOrderCommand {
     @TargetAggregateIdentifier  //Command메시지를 구별하는 유일한 key
     String orderId;
+    //-- Saga가 이후 단계에서 사용할 각 서비스의 ID. 주문 취소 요청 시 조회한 값을 전달함
+    String paymentId;
+    String deliveryId;
+    String reportId;
 }
@@ -1,18 +1,47 @@
 package com.agilemall.order.config;
 
-import com.agilemall.common.config.Constants;
+import com.agilemall.common.config.AdaptiveSnapshotTriggerDefinition;
+import com.agilemall.common.config.BoundedCache;
+import com.agilemall.common.config.RevisionUpcaster;
+import com.agilemall.common.config.VirtualThreads;
+import com.agilemall.common.queries.SingleFlightQueryGateway;
+import com.agilemall.order.events.DeletedOrderEvent;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thoughtworks.xstream.XStream;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.axonframework.common.caching.Cache;
-import org.axonframework.common.caching.WeakReferenceCache;
+import org.axonframework.common.jpa.EntityManagerProvider;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.config.ConfigurationScopeAwareProvider;
 import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.deadline.DeadlineManager;
+import org.axonframework.deadline.quartz.QuartzDeadlineManager;
 import org.axonframework.eventhandling.TrackingEventProcessorConfiguration;
 import org.axonframework.eventhandling.async.SequentialPerAggregatePolicy;
-import org.axonframework.eventsourcing.EventCountSnapshotTriggerDefinition;
+import org.axonframework.eventhandling.tokenstore.inmemory.InMemoryTokenStore;
 import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
 import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.messaging.StreamableMessageSource;
+import org.axonframework.modelling.saga.repository.CachingSagaStore;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.axonframework.modelling.saga.repository.jpa.JpaSagaStore;
+import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.axonframework.serialization.upcasting.event.EventUpcaster;
+import org.quartz.Scheduler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
 
 @Configuration
 public class AxonConfig {
@@ -23,21 +52,95 @@ public class AxonConfig {
         xStream.allowTypesByWildcard(new String[] {
                 "com.agilemall.**"
         });
+        //-- 이전 버전 snapshot의 aggregateHistory(이전 상태 목록) 항목은 무시하고 읽음. Aggregate는 previousState만 보관함
+        xStream.ignoreUnknownElements("aggregateHistory");
         return xStream;
     }
 
+    //-- DeletedOrderEvent revision 2: Saga에서 사용할 결제/배송/레포트 ID 추가. 이전 Event는 ID 없이(null) 변환함
+    @Bean
+    @Order(2)
+    public EventUpcaster deletedOrderEventUpcaster() {
+        return new RevisionUpcaster(DeletedOrderEvent.class, "1", "2",
+                event -> event.putNull("paymentId").putNull("deliveryId").putNull("reportId"));
+    }
+
+    //-- Aggregate 로딩 소요시간, 재생한 Event 크기가 기준을 넘으면 snapshot 생성(AdaptiveSnapshotTriggerDefinition 참조)
+    @Bean
+    public SnapshotTriggerDefinition snapshotTrigger(Snapshotter snapshotter,
+                                                     @Qualifier("eventSerializer") Serializer eventSerializer,
+                                                     MeterRegistry meterRegistry, Environment environment) {
+        return new AdaptiveSnapshotTriggerDefinition(snapshotter, eventSerializer, meterRegistry, environment);
+    }
+
+    //-- OrderAggregate 전용 Cache. 최대 건수를 넘거나 미사용 만료시간이 지나면 오래 사용되지 않은 Aggregate부터 제거함(BoundedCache 참조)
+    //-- WeakReferenceCache와 달리 GC로 비워지지 않으며, hit/miss/eviction은 cache.* Metric(tag cache=orderAggregateCache)으로 확인
+    @Bean
+    public Cache orderAggregateCache(MeterRegistry meterRegistry,
+                                     @Value("${agilemall.aggregate-cache.OrderAggregate.max-size:10000}") long maxSize,
+                                     @Value("${agilemall.aggregate-cache.OrderAggregate.expire-seconds:600}") long expireSeconds) {
+        return new BoundedCache(maxSize, Duration.ofSeconds(expireSeconds))
+                .registerMetrics(meterRegistry, "orderAggregateCache");
+    }
+
+    /*
+    - 목적: Saga 상태 저장소에 Cache를 적용하고 Saga 상태를 JSON으로 저장
+    - 설명
+        - Saga Event마다 DB에서 Saga 상태와 연관값(association)을 읽던 것을, 최근 사용한 Saga는 메모리(LRU)에서 읽음
+        - DB 쓰기는 JpaSagaStore로 그대로 수행되며, 한 batch에서 같은 Saga가 여러 Event를 처리해도 batch 끝에 한번만 저장됨
+        - Saga 상태는 aggregateIdMap 등 필드만 JSON으로 저장함(transient 필드 제외). XStream XML보다 작고 빠름
+        - Saga processor는 1개 segment로 한 인스턴스에서만 처리하지만, segment 소유권이 다른 인스턴스로 옮겨갈 때
+          이전 Cache를 쓰지 않도록 미사용 만료시간을 짧게 둠
+        - 배포 시 XStream으로 저장된 진행 중 Saga가 없어야 함(Saga는 수 초 내에 끝나므로 주문 접수를 멈추고 배포)
+    */
+    @Bean
+    public SagaStore<Object> sagaStore(EntityManagerProvider entityManagerProvider, MeterRegistry meterRegistry,
+                                       @Value("${agilemall.saga.cache-size:10000}") long cacheSize,
+                                       @Value("${agilemall.saga.cache-expire-seconds:60}") long cacheExpireSeconds) {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        JpaSagaStore jpaSagaStore = JpaSagaStore.builder()
+                .entityManagerProvider(entityManagerProvider)
+                .serializer(JacksonSerializer.builder().objectMapper(objectMapper).build())
+                .build();
+
+        Duration expireAfterAccess = Duration.ofSeconds(cacheExpireSeconds);
+        return CachingSagaStore.builder()
+                .delegateSagaStore(jpaSagaStore)
+                .sagaCache(new BoundedCache(cacheSize, expireAfterAccess).registerMetrics(meterRegistry, "sagaCache"))
+                .associationsCache(new BoundedCache(cacheSize, expireAfterAccess).registerMetrics(meterRegistry, "sagaAssociationsCache"))
+                .build();
+    }
+
+    //-- Saga 단계별 제한시간 관리. 만료 시 Saga의 @DeadlineHandler를 호출함(SagaDeadlineService 참조)
+    //-- Quartz JDBC job store(orderDB의 qrtz_* table)에 저장하므로 서비스를 재시작해도 deadline이 유지됨.
+    //-- 중지된 동안 만료 시점이 지난 deadline은 재시작 후 바로 수행되어, 결과를 기다리던 Saga도 보상처리 후 종료됨
+    //-- deadline의 Saga scope 정보는 XStream 허용 type(com.agilemall.**)이 아니므로 Jackson으로 직렬화함
     @Bean
-    public SnapshotTriggerDefinition snapshotTrigger(Snapshotter snapshotter) {
-        return new EventCountSnapshotTriggerDefinition(snapshotter, Constants.SNAPSHOT_COUNT);
+    public DeadlineManager deadlineManager(Scheduler scheduler,
+                                           org.axonframework.config.Configuration configuration,
+                                           TransactionManager transactionManager) {
+        return QuartzDeadlineManager.builder()
+                .scheduler(scheduler)
+                .scopeAwareProvider(new ConfigurationScopeAwareProvider(configuration))
+                .serializer(JacksonSerializer.defaultSerializer())
+                .transactionManager(transactionManager)
+                .build();
     }
 
+    //-- 주문현황 등 동시에 같은 조건으로 요청되는 Query를 한번만 발송함
     @Bean
-    public Cache snapshotCache() {
-        return new WeakReferenceCache();
+    public SingleFlightQueryGateway singleFlightQueryGateway(QueryGateway queryGateway) {
+        return new SingleFlightQueryGateway(queryGateway);
     }
 
     @Autowired
-    public void configure(EventProcessingConfigurer configurer) {
+    public void configure(EventProcessingConfigurer configurer,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean isVirtual,
+                          @Value("${agilemall.saga.batch-size:50}") int sagaBatchSize) {
         //참고: https://cla9.tistory.com/17
         //-- 한번에 처리하는 Event 갯수(1개 -> 100개)와 동시 수행 Thread 수를 지정함
         configurer.registerTrackingEventProcessor(
@@ -45,11 +148,44 @@ public class AxonConfig {
                 org.axonframework.config.Configuration::eventStore,
                 c -> TrackingEventProcessorConfiguration.forParallelProcessing(3)
                         .andBatchSize(100)
+                        .andThreadFactory(VirtualThreads.processorThreadFactory(isVirtual))
         );
 
         //-- 동일 Aggregate는 동일 Thread에서 처리되게 하여 처리 순서 보장을 함
         configurer.registerSequencingPolicy("orders",
                 configuration -> SequentialPerAggregatePolicy.instance());
+
+        //-- 제품 정보 복제본은 메모리에만 있으므로 token도 메모리에 두고 서비스 시작 시점의 Event부터 처리함
+        configurer.registerTrackingEventProcessor(
+                "inventory-replica",
+                org.axonframework.config.Configuration::eventStore,
+                c -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andInitialTrackingToken(StreamableMessageSource::createHeadToken)
+                        .andThreadFactory(VirtualThreads.processorThreadFactory(isVirtual))
+        );
+        configurer.registerTokenStore("inventory-replica", c -> new InMemoryTokenStore());
+
+        //-- 진행 중 주문 목록도 메모리에만 있으므로 제품 정보 복제본과 같이 설정함
+        configurer.registerTrackingEventProcessor(
+                "admission-control",
+                org.axonframework.config.Configuration::eventStore,
+                c -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andInitialTrackingToken(StreamableMessageSource::createHeadToken)
+                        .andThreadFactory(VirtualThreads.processorThreadFactory(isVirtual))
+        );
+        configurer.registerTokenStore("admission-control", c -> new InMemoryTokenStore());
+
+        //-- Saga는 Event를 batch로 처리하여 batch 안에서 같은 Saga의 상태 저장을 한번으로 합침
+        for (String sagaProcessor : new String[] {
+                "OrderCreatingSagaProcessor", "OrderUpdatingSagaProcessor", "OrderDeletingSagaProcessor" }) {
+            configurer.registerTrackingEventProcessor(
+                    sagaProcessor,
+                    org.axonframework.config.Configuration::eventStore,
+                    c -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                            .andBatchSize(sagaBatchSize)
+                            .andThreadFactory(VirtualThreads.processorThreadFactory(isVirtual))
+            );
+        }
     }
 }
 
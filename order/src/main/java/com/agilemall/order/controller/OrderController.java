@@ -2,58 +2,182 @@ package com.agilemall.order.controller;
 /*
 - 목적: 서비스 외부에 노출하는 API 정의
 - 설명
-  - createOder: 신규 주문 API
+  - createOder: 신규 주문 API (async=true이면 접수 즉시 202 Accepted 리턴)
+  - getOrderProgress: 비동기 주문 요청의 진행 단계 조회 API
+  - createOrders: 일괄 신규 주문 API. 각 주문 결과를 완료되는 순서대로 NDJSON으로 전송
   - updateOrder: 주문 수정 API
+  - subscribeOrderStatus: 주문/결제/배송 정보의 변경을 SSE로 전송하는 API. 주문 상세현황 API를 Polling하지 않아도 됨
   - deleteOrder: 주문 취소 API
+  - 신규/수정/취소 API는 'Idempotency-Key' header가 있으면 동일 Key의 재요청에 최초 처리 결과를 리턴함
+    (성공한 결과만 보관하며, 같은 Key로 다른 내용을 요청하면 422를 리턴함)
+  - 신규/수정/취소 API는 진행 중인 주문이 많거나 Event 처리가 지연되면 429(Retry-After header 포함)를 리턴함
+    (같은 Idempotency-Key로 이미 처리된 요청은 429 대신 처리 결과를 리턴함)
 */
 
+import com.agilemall.order.dto.OrderProgressDTO;
 import com.agilemall.order.dto.OrderStatusDTO;
 import com.agilemall.common.vo.ResultVO;
 import com.agilemall.order.command.CreateOrderCommand;
 import com.agilemall.order.command.UpdateOrderCommand;
 import com.agilemall.order.dto.OrderReqCreateDTO;
 import com.agilemall.order.dto.OrderReqUpdateDTO;
+import com.agilemall.order.service.AdmissionControlService;
+import com.agilemall.order.service.IdempotencyService;
+import com.agilemall.order.service.OrderBatchService;
+import com.agilemall.order.service.OrderProgressService;
 import com.agilemall.order.service.OrderService;
+import com.agilemall.order.service.OrderSubscriptionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Tag(name = "Order service API", description="Order service API" )
 @Slf4j
 @RestController
 @RequestMapping("/api/v1")
 public class OrderController {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     private final OrderService orderService;
+    private final OrderProgressService orderProgressService;
+    private final OrderBatchService orderBatchService;
+    private final IdempotencyService idempotencyService;
+    private final OrderSubscriptionService orderSubscriptionService;
+    private final AdmissionControlService admissionControlService;
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderProgressService orderProgressService,
+                           OrderBatchService orderBatchService, IdempotencyService idempotencyService,
+                           OrderSubscriptionService orderSubscriptionService,
+                           AdmissionControlService admissionControlService) {
         this.orderService = orderService;
+        this.orderProgressService = orderProgressService;
+        this.orderBatchService = orderBatchService;
+        this.idempotencyService = idempotencyService;
+        this.orderSubscriptionService = orderSubscriptionService;
+        this.admissionControlService = admissionControlService;
     }
 
     //-- 신규 주문 API
     @PostMapping("/orders")
-    @Operation(summary = "신규 상품 주문 API")
-    private ResultVO<CreateOrderCommand> createOrder(@RequestBody OrderReqCreateDTO orderReqCreateDTO) {
-        log.info("[@PostMapping '/orders'] Executing createOrder: {}", orderReqCreateDTO.toString());
+    @Operation(summary = "신규 상품 주문 API", description = "async=true이면 주문 접수 후 바로 202를 리턴하며, 진행 단계는 '/orders/{orderId}/progress'로 조회")
+    @Parameters({
+            @Parameter(name = "async", in = ParameterIn.QUERY, description = "비동기 처리 여부", example = "false"),
+            @Parameter(name = IDEMPOTENCY_KEY, in = ParameterIn.HEADER, description = "재요청 시 중복 주문 방지용 Key")
+    })
+    private ResponseEntity<ResultVO<CreateOrderCommand>> createOrder(
+            @RequestBody OrderReqCreateDTO orderReqCreateDTO,
+            @RequestParam(name = "async", defaultValue = "false") boolean isAsync,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        log.info("[@PostMapping '/orders'] Executing createOrder(async={}): {}", isAsync, orderReqCreateDTO.toString());
 
-        ResultVO<CreateOrderCommand> retVo = orderService.createOrder(orderReqCreateDTO);
+        ResponseEntity<ResultVO<CreateOrderCommand>> response = execute("createOrder", idempotencyKey, orderReqCreateDTO,
+                AdmissionControlService.CREATE, () -> orderService.createOrder(orderReqCreateDTO, isAsync),
+                ret -> ret.getResult().getOrderId());
 
         log.info("[@PostMapping] Executing createOrder is Finished");
-        return retVo;
+        ResultVO<CreateOrderCommand> retVo = response.getBody();
+        if (isAsync && response.getStatusCode() == HttpStatus.OK && retVo != null && retVo.isReturnCode()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Location", "/api/v1/orders/" + retVo.getResult().getOrderId() + "/progress")
+                    .body(retVo);
+        }
+        return response;
+    }
+
+    //-- 일괄 신규 주문 API
+    @PostMapping(value = "/orders/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "일괄 신규 주문 API", description = "각 주문의 처리 결과를 완료되는 순서대로 한 줄씩 전송함")
+    private ResponseBodyEmitter createOrders(@RequestBody List<OrderReqCreateDTO> orderReqCreateDTOs,
+                                             HttpServletResponse response) throws IOException {
+        log.info("[@PostMapping '/orders/batch'] Executing createOrders: {} orders", orderReqCreateDTOs.size());
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(TimeUnit.MINUTES.toMillis(10));
+
+        //-- 이미 한도를 넘었으면 전체 요청을 거절하고 거절 사유를 한 줄로 전송함. 각 주문의 한도 검사는 OrderBatchService에서 수행함
+        Optional<String> rejected = admissionControlService.checkAdmission();
+        if (rejected.isPresent()) {
+            ResponseEntity<ResultVO<CreateOrderCommand>> rejectResponse = admissionControlService.rejectResponse(rejected.get());
+            response.setStatus(rejectResponse.getStatusCode().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, rejectResponse.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+            emitter.send(rejectResponse.getBody(), MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+            emitter.complete();
+            return emitter;
+        }
+
+        orderBatchService.createOrders(orderReqCreateDTOs,
+                retVo -> {
+                    synchronized (emitter) {
+                        try {
+                            emitter.send(retVo, MediaType.APPLICATION_JSON);
+                            emitter.send("\n", MediaType.TEXT_PLAIN);
+                        } catch (IOException e) {
+                            log.error("Fail to send batch order result: {}", e.getMessage());
+                        }
+                    }
+                },
+                emitter::complete);
+        return emitter;
+    }
+
+    //-- 비동기 주문 요청의 진행 단계 API
+    @GetMapping("/orders/{orderId}/progress")
+    @Operation(summary = "주문 처리 진행 단계 API")
+    @Parameters({
+            @Parameter(name = "orderId", in= ParameterIn.PATH, description = "주문ID", required = true)
+    })
+    private ResponseEntity<ResultVO<OrderProgressDTO>> getOrderProgress(@PathVariable(name = "orderId") String orderId) {
+        log.info("[@GetMapping '/orders/{orderId}/progress'] Executing getOrderProgress: {}", orderId);
+
+        ResultVO<OrderProgressDTO> retVo = new ResultVO<>();
+        return orderProgressService.getProgress(orderId)
+                .map(progress -> {
+                    retVo.setReturnCode(true);
+                    retVo.setReturnMessage(progress.getProgressDesc());
+                    retVo.setResult(progress);
+                    return new ResponseEntity<>(retVo, HttpStatus.OK);
+                })
+                .orElseGet(() -> {
+                    retVo.setReturnCode(false);
+                    retVo.setReturnMessage("Can't find Order progress for Order Id:" + orderId);
+                    return new ResponseEntity<>(retVo, HttpStatus.NOT_FOUND);
+                });
     }
 
     //-- 주문 수정 API
     @PutMapping("/orders")
     @Operation(summary = "주문 수정 API")
-    private ResultVO<UpdateOrderCommand> updateOrder(@RequestBody OrderReqUpdateDTO orderReqUpdateDTO) {
+    @Parameters({
+            @Parameter(name = IDEMPOTENCY_KEY, in = ParameterIn.HEADER, description = "재요청 시 중복 처리 방지용 Key")
+    })
+    private ResponseEntity<ResultVO<UpdateOrderCommand>> updateOrder(
+            @RequestBody OrderReqUpdateDTO orderReqUpdateDTO,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("[@PutMapping '/orders'] Executing updateOrder: {}", orderReqUpdateDTO.toString());
 
-        return orderService.updateOrder(orderReqUpdateDTO);
+        return execute("updateOrder", idempotencyKey, orderReqUpdateDTO,
+                AdmissionControlService.UPDATE, () -> orderService.updateOrder(orderReqUpdateDTO),
+                ret -> orderReqUpdateDTO.getOrderId());
     }
 
     //-- 주문 상세 정보 API
@@ -67,15 +191,68 @@ public class OrderController {
         return orderService.getOrderStatus(orderId);
     }
 
+    //-- 주문 상세 정보 변경 구독 API (SSE)
+    @GetMapping(value = "/orders/{orderId}/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "주문 상세현황 구독 API", description = "주문/결제/배송 정보를 먼저 전송하고, 이후 변경될 때마다 'order', 'payment', 'delivery' event로 전송함")
+    @Parameters({
+            @Parameter(name = "orderId", in= ParameterIn.PATH, description = "주문ID", required = true)
+    })
+    private SseEmitter subscribeOrderStatus(@PathVariable(name = "orderId") String orderId) {
+        log.info("[@GetMapping '/orders/{orderId}/subscribe'] Executing subscribeOrderStatus: {}", orderId);
+        return orderSubscriptionService.subscribe(orderId);
+    }
+
     //-- 주문 취소 API
     @DeleteMapping("/orders/{orderId}")
     @Operation(summary = "주문 취소 API")
     @Parameters({
-            @Parameter(name = "orderId", in= ParameterIn.PATH, description = "주문ID", required = true)
+            @Parameter(name = "orderId", in= ParameterIn.PATH, description = "주문ID", required = true),
+            @Parameter(name = IDEMPOTENCY_KEY, in = ParameterIn.HEADER, description = "재요청 시 중복 처리 방지용 Key")
     })
-    private ResultVO<String> deleteOrder(@PathVariable(name = "orderId") String orderId) {
+    private ResponseEntity<ResultVO<String>> deleteOrder(
+            @PathVariable(name = "orderId") String orderId,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("[@GetMapping '/orders/{userId}'] Executing deleteOrder: {}", orderId);
-        return orderService.deleteOrder(orderId);
+
+        return execute("deleteOrder", idempotencyKey, orderId,
+                AdmissionControlService.DELETE, () -> orderService.deleteOrder(orderId),
+                ret -> orderId);
     }
 
+    /*
+    - 목적: 신규/수정/취소 요청을 중복 요청 검사, 처리 한도 검사 후 수행
+    - 설명
+        - 같은 Idempotency-Key로 이미 처리된(또는 처리 중인) 요청은 처리 한도와 관계없이 그 결과를 리턴함
+        - 처리 한도 내이면 자리를 예약한 후 수행하고, 성공하면 진행 중 주문으로 등록하고 실패하면 자리를 반환함
+    */
+    private <T> ResponseEntity<ResultVO<T>> execute(String scope, String idempotencyKey, Object request, String operation,
+                                                    Supplier<ResultVO<T>> action, Function<ResultVO<T>, String> orderIdOf) {
+        if (idempotencyService.isReusedForOtherRequest(scope, idempotencyKey, request)) return keyReusedResponse();
+
+        Optional<ResultVO<T>> prevResult = idempotencyService.findResult(scope, idempotencyKey, request);
+        if (prevResult.isPresent()) return new ResponseEntity<>(prevResult.get(), HttpStatus.OK);
+
+        Optional<String> rejected = admissionControlService.tryAcquire();
+        if (rejected.isPresent()) return admissionControlService.rejectResponse(rejected.get());
+
+        AtomicBoolean isExecuted = new AtomicBoolean(false);
+        try {
+            ResultVO<T> retVo = idempotencyService.execute(scope, idempotencyKey, request, () -> {
+                isExecuted.set(true);
+                return admissionControlService.runAcquired(operation, action, orderIdOf);
+            });
+            return new ResponseEntity<>(retVo, HttpStatus.OK);
+        } finally {
+            //-- 동시에 들어온 같은 요청이 먼저 수행되어 이 요청은 수행하지 않았으면 예약한 자리를 반환함
+            if (!isExecuted.get()) admissionControlService.cancelAcquired();
+        }
+    }
+
+    //-- 같은 Idempotency-Key로 다른 내용의 요청이 오면 422로 거절함
+    private <T> ResponseEntity<ResultVO<T>> keyReusedResponse() {
+        ResultVO<T> retVo = new ResultVO<>();
+        retVo.setReturnCode(false);
+        retVo.setReturnMessage(IdempotencyService.KEY_REUSED_MESSAGE);
+        return new ResponseEntity<>(retVo, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
 }
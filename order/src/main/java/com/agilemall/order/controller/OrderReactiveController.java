@@ -0,0 +1,107 @@
+package com.agilemall.order.controller;
+/*
+- 목적: OrderController와 같은 주문 API를 Reactive(Mono)로 제공
+- 설명
+    - 처리 결과를 기다리는 동안 요청 thread를 점유하지 않으므로 적은 thread로 많은 동시 요청을 처리할 수 있음
+    - 요청/응답 형식은 '/api/v1'과 같음
+    - 신규/수정/취소 API는 '/api/v1'과 같이 처리 한도를 넘으면 429(Retry-After header 포함)를 리턴함
+*/
+
+import com.agilemall.common.vo.ResultVO;
+import com.agilemall.order.command.CreateOrderCommand;
+import com.agilemall.order.command.UpdateOrderCommand;
+import com.agilemall.order.dto.OrderReqCreateDTO;
+import com.agilemall.order.dto.OrderReqUpdateDTO;
+import com.agilemall.order.dto.OrderStatusDTO;
+import com.agilemall.order.service.AdmissionControlService;
+import com.agilemall.order.service.OrderReactiveService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Tag(name = "Order service reactive API", description="Order service reactive API" )
+@Slf4j
+@RestController
+@RequestMapping("/api/v2")
+public class OrderReactiveController {
+    private final OrderReactiveService orderReactiveService;
+    private final AdmissionControlService admissionControlService;
+    @Autowired
+    public OrderReactiveController(OrderReactiveService orderReactiveService,
+                                   AdmissionControlService admissionControlService) {
+        this.orderReactiveService = orderReactiveService;
+        this.admissionControlService = admissionControlService;
+    }
+
+    //-- 신규 주문 API
+    @PostMapping("/orders")
+    @Operation(summary = "신규 상품 주문 API (Reactive)")
+    private Mono<ResponseEntity<ResultVO<CreateOrderCommand>>> createOrder(@RequestBody OrderReqCreateDTO orderReqCreateDTO) {
+        log.info("[@PostMapping '/v2/orders'] Executing createOrder: {}", orderReqCreateDTO.toString());
+
+        return admit(AdmissionControlService.CREATE, () -> orderReactiveService.createOrder(orderReqCreateDTO),
+                retVo -> retVo.getResult().getOrderId());
+    }
+
+    //-- 주문 수정 API
+    @PutMapping("/orders")
+    @Operation(summary = "주문 수정 API (Reactive)")
+    private Mono<ResponseEntity<ResultVO<UpdateOrderCommand>>> updateOrder(@RequestBody OrderReqUpdateDTO orderReqUpdateDTO) {
+        log.info("[@PutMapping '/v2/orders'] Executing updateOrder: {}", orderReqUpdateDTO.toString());
+
+        return admit(AdmissionControlService.UPDATE, () -> orderReactiveService.updateOrder(orderReqUpdateDTO),
+                retVo -> orderReqUpdateDTO.getOrderId());
+    }
+
+    //-- 주문 상세 정보 API
+    @GetMapping("/orders/{orderId}")
+    @Operation(summary = "주문 상세현황 API (Reactive)")
+    @Parameters({
+            @Parameter(name = "orderId", in= ParameterIn.PATH, description = "주문ID", required = true)
+    })
+    private Mono<ResultVO<OrderStatusDTO>> getOrderStatus(@PathVariable(name = "orderId") String orderId) {
+        log.info("[@GetMapping '/v2/orders/{orderId}'] Executing getOrderStatus: {}", orderId);
+        return orderReactiveService.getOrderStatus(orderId);
+    }
+
+    //-- 주문 취소 API
+    @DeleteMapping("/orders/{orderId}")
+    @Operation(summary = "주문 취소 API (Reactive)")
+    @Parameters({
+            @Parameter(name = "orderId", in= ParameterIn.PATH, description = "주문ID", required = true)
+    })
+    private Mono<ResponseEntity<ResultVO<String>>> deleteOrder(@PathVariable(name = "orderId") String orderId) {
+        log.info("[@DeleteMapping '/v2/orders/{orderId}'] Executing deleteOrder: {}", orderId);
+
+        return admit(AdmissionControlService.DELETE, () -> orderReactiveService.deleteOrder(orderId), retVo -> orderId);
+    }
+
+    //-- 처리 한도 내이면 자리를 예약한 후 수행. 성공하면 진행 중 주문으로 등록하고, 실패/오류/취소 시 자리를 반환함
+    private <T> Mono<ResponseEntity<ResultVO<T>>> admit(String operation, Supplier<Mono<ResultVO<T>>> action,
+                                                        Function<ResultVO<T>, String> orderIdOf) {
+        Optional<String> rejected = admissionControlService.tryAcquire();
+        if (rejected.isPresent()) return Mono.just(admissionControlService.rejectResponse(rejected.get()));
+
+        AtomicBoolean isSettled = new AtomicBoolean(false);
+        return Mono.defer(action)
+                .doOnNext(retVo -> {
+                    if (isSettled.compareAndSet(false, true)) admissionControlService.settle(operation, retVo, orderIdOf);
+                })
+                .doFinally(signal -> {
+                    if (isSettled.compareAndSet(false, true)) admissionControlService.cancelAcquired();
+                })
+                .map(ResponseEntity::ok);
+    }
+}
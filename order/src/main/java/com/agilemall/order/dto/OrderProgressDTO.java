@@ -0,0 +1,17 @@
+package com.agilemall.order.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class OrderProgressDTO {
+    String orderId;
+    String progress;
+    String progressDesc;
+    boolean finished;
+    String message;
+    LocalDateTime updatedDatetime;
+}
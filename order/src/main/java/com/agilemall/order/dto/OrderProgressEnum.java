@@ -0,0 +1,31 @@
+package com.agilemall.order.dto;
+
+public enum OrderProgressEnum {
+    ACCEPTED("10", "주문요청접수", false),
+    ORDER_CREATED("20", "주문생성", false),
+    PAYMENT_CREATED("30", "결제생성", false),
+    DELIVERY_CREATED("40", "배송생성", false),
+    COMPLETED("50", "주문완료", true),
+    COMPENSATING("60", "주문취소중", false),
+    CANCELLED("70", "주문취소", true),
+    FAILED("80", "주문요청실패", true);
+
+    private final String value;
+    private final String desc;
+    private final boolean finished;
+
+    OrderProgressEnum(String value, String desc, boolean finished) {
+        this.value = value;
+        this.desc = desc;
+        this.finished = finished;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public String description() { return desc; }
+
+    //-- 더 이상 진행될 단계가 없는지 여부
+    public boolean isFinished() { return finished; }
+}
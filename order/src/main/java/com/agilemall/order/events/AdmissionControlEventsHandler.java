@@ -0,0 +1,56 @@
+package com.agilemall.order.events;
+/*
+- 목적: 주문 Saga가 종료되면 AdmissionControlService의 진행 중 주문 목록에서 삭제함
+- 설명
+    - 진행 중 주문 목록은 메모리에만 있으므로 Tracking token도 메모리에 보관하고, 서비스 시작 시점 이후의 Event만 처리함
+      (*.config > AxonConfig 참조)
+*/
+import com.agilemall.order.service.AdmissionControlService;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.DisallowReplay;
+import org.axonframework.eventhandling.EventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@ProcessingGroup("admission-control")
+@DisallowReplay
+public class AdmissionControlEventsHandler {
+    private final AdmissionControlService admissionControlService;
+    @Autowired
+    public AdmissionControlEventsHandler(AdmissionControlService admissionControlService) {
+        this.admissionControlService = admissionControlService;
+    }
+
+    @EventHandler
+    private void on(CompletedCreateOrderEvent event) {
+        admissionControlService.release(AdmissionControlService.CREATE, event.getOrderId());
+    }
+
+    @EventHandler
+    private void on(CancelledCreateOrderEvent event) {
+        admissionControlService.release(AdmissionControlService.CREATE, event.getOrderId());
+    }
+
+    @EventHandler
+    private void on(CompletedUpdateOrderEvent event) {
+        admissionControlService.release(AdmissionControlService.UPDATE, event.getOrderId());
+    }
+
+    @EventHandler
+    private void on(CancelledUpdateOrderEvent event) {
+        admissionControlService.release(AdmissionControlService.UPDATE, event.getOrderId());
+    }
+
+    @EventHandler
+    private void on(CompletedDeleteOrderEvent event) {
+        admissionControlService.release(AdmissionControlService.DELETE, event.getOrderId());
+    }
+
+    @EventHandler
+    private void on(CancelledDeleteOrderEvent event) {
+        admissionControlService.release(AdmissionControlService.DELETE, event.getOrderId());
+    }
+}
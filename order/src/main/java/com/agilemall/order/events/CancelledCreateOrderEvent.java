@@ -1,8 +1,10 @@
 package com.agilemall.order.events;
 
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 @Data   //@Getter @Setter @RequiredArgsConstructor @ToString @EqualsAndHashCode 포함
+@Revision("1")
 public class CancelledCreateOrderEvent {
     private String orderId;
     private String orderStatus;
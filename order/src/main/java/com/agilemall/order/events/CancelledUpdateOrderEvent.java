@@ -2,9 +2,13 @@ package com.agilemall.order.events;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 @Data   //@Getter @Setter @RequiredArgsConstructor @ToString @EqualsAndHashCode 포함
 @AllArgsConstructor
+@NoArgsConstructor
+@Revision("1")
 public class CancelledUpdateOrderEvent {
     private String orderId;
 }
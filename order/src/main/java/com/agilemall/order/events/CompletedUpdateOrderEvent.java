@@ -1,8 +1,10 @@
 package com.agilemall.order.events;
 
 import lombok.Data;
+import org.axonframework.serialization.Revision;
 
 @Data
+@Revision("1")
 public class CompletedUpdateOrderEvent {
     private String orderId;
     private String orderStatus;
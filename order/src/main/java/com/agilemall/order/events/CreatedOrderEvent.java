@@ -4,12 +4,14 @@ import com.agilemall.common.dto.PaymentDetailDTO;
 import com.agilemall.common.dto.OrderDetailDTO;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @NoArgsConstructor
+@Revision("1")
 public class CreatedOrderEvent {
     private String orderId;
     private String userId;
@@ -2,9 +2,16 @@ package com.agilemall.order.events;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 @Data
 @AllArgsConstructor
+@NoArgsConstructor
+@Revision("2")    //revision 2: paymentId, deliveryId, reportId 추가
 public class DeletedOrderEvent {
     private String orderId;
+    private String paymentId;
+    private String deliveryId;
+    private String reportId;
 }
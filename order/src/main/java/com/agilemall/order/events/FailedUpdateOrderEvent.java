@@ -3,10 +3,12 @@ package com.agilemall.order.events;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.axonframework.serialization.Revision;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@Revision("1")
 public class FailedUpdateOrderEvent {
     private String orderId;
 }
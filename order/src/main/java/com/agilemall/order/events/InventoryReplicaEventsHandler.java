@@ -0,0 +1,45 @@
+package com.agilemall.order.events;
+/*
+- 목적: Inventory service에서 발행한 Event로 Order service의 제품 정보 복제본을 갱신
+- 설명
+    - 복제본은 메모리에만 있으므로 Tracking token도 메모리에 보관하고, 서비스 시작 시점 이후의 Event만 처리함
+      (*.config > AxonConfig 참조)
+*/
+import com.agilemall.common.dto.InventoryDTO;
+import com.agilemall.common.events.create.CreatedInventoryEvent;
+import com.agilemall.common.events.update.UpdatedInventoryQtyEvent;
+import com.agilemall.order.service.InventoryReplicaService;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.DisallowReplay;
+import org.axonframework.eventhandling.EventHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@ProcessingGroup("inventory-replica")
+@DisallowReplay
+public class InventoryReplicaEventsHandler {
+
+    private final InventoryReplicaService inventoryReplicaService;
+    @Autowired
+    public InventoryReplicaEventsHandler(InventoryReplicaService inventoryReplicaService) {
+        this.inventoryReplicaService = inventoryReplicaService;
+    }
+
+    @EventHandler
+    private void on(CreatedInventoryEvent event) {
+        log.info("[@EventHandler] Handle <CreatedInventoryEvent> for Product Id: {}", event.getProductId());
+
+        inventoryReplicaService.put(new InventoryDTO(event.getProductId(), event.getProductName(),
+                event.getUnitPrice(), event.getInventoryQty()));
+    }
+
+    @EventHandler
+    private void on(UpdatedInventoryQtyEvent event) {
+        log.info("[@EventHandler] Handle <UpdatedInventoryQtyEvent> for Product Id: {}", event.getProductId());
+
+        inventoryReplicaService.updateInventoryQty(event.getProductId(), event.getInventoryQty());
+    }
+}
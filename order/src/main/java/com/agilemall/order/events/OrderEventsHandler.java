@@ -1,14 +1,19 @@
 package com.agilemall.order.events;
 /*
 - 목적: OrderAggregate에서 생성된 Event 처리를 수행
+- 설명
+    - 주문 정보가 변경되면 Queries.ORDER_BY_ORDER_ID Subscription Query 구독자에게 변경된 주문 정보를 전송함
+    - 주문 정보가 삭제되면 해당 주문의 Subscription Query를 종료함
 */
 
 import com.agilemall.common.dto.OrderDetailDTO;
 import com.agilemall.common.dto.OrderStatusEnum;
 import com.agilemall.common.events.update.UpdatedOrderToReportEvent;
+import com.agilemall.common.queries.Queries;
 import com.agilemall.order.entity.Order;
 import com.agilemall.order.entity.OrderDetail;
 import com.agilemall.order.entity.OrderDetailIdentity;
+import com.agilemall.order.queries.OrderQueryHandler;
 import com.agilemall.order.repository.OrderRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.config.ProcessingGroup;
@@ -17,6 +22,8 @@ import org.axonframework.eventhandling.DisallowReplay;
 import org.axonframework.eventhandling.EventHandler;
 import org.axonframework.eventhandling.ResetHandler;
 import org.axonframework.eventhandling.gateway.EventGateway;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -33,10 +40,13 @@ public class OrderEventsHandler {
 
     private final OrderRepository orderRepository;
     private transient final EventGateway eventGateway;
+    private transient final QueryUpdateEmitter queryUpdateEmitter;
     @Autowired
-    public OrderEventsHandler(OrderRepository orderRepository, EventGateway eventGateway) {
+    public OrderEventsHandler(OrderRepository orderRepository, EventGateway eventGateway,
+                              QueryUpdateEmitter queryUpdateEmitter) {
         this.orderRepository = orderRepository;
         this.eventGateway = eventGateway;
+        this.queryUpdateEmitter = queryUpdateEmitter;
     }
     //==================== 신규 주문 관련 이벤트 처리 ======================
     @EventHandler
@@ -64,6 +74,7 @@ public class OrderEventsHandler {
             }
             order.setOrderDetails(newOrderDetails);
             orderRepository.save(order);
+            emitOrderUpdate(order);
         } catch(Exception e) {
             log.error(e.getMessage());
             eventGateway.publish(new FailedCreateOrderEvent(event.getOrderId()));
@@ -81,6 +92,7 @@ public class OrderEventsHandler {
                 Order order = optOrder.get();
                 order.setOrderStatus(event.getOrderStatus());
                 orderRepository.save(order);
+                emitOrderUpdate(order);
             } else {
                 log.error("Can't get Order for Order Id: {}", event.getOrderId());
                 eventGateway.publish(new FailedCompleteCreateOrderEvent(event.getOrderId()));
@@ -102,6 +114,7 @@ public class OrderEventsHandler {
             Optional<Order> optOrder = orderRepository.findById(event.getOrderId());
             if (optOrder.isEmpty()) return;
             orderRepository.delete(optOrder.get());
+            completeOrderSubscription(event.getOrderId());
         } catch (Exception e) {
             log.error(e.getMessage());
         }
@@ -140,6 +153,7 @@ public class OrderEventsHandler {
             order.setTotalOrderAmt(event.getTotalOrderAmt());
             order.setOrderStatus(event.getOrderStatus());
             orderRepository.save(order);
+            emitOrderUpdate(order);
 
         } catch(Exception e) {
             log.error(e.getMessage());
@@ -158,6 +172,7 @@ public class OrderEventsHandler {
             Order order = optOrder.get();
             order.setOrderStatus(OrderStatusEnum.COMPLETED.value());
             orderRepository.save(order);
+            emitOrderUpdate(order);
 
             //-- Report 업데이트를 위해 Event 생성
             log.info("==== Send <UpdatedOrderToReportEvent> to report for Order Id: {}", event.getOrderId());
@@ -202,6 +217,7 @@ public class OrderEventsHandler {
             //orderRepository.delete(optOrder.get());
             optOrder.get().setOrderStatus(OrderStatusEnum.ORDER_CANCLLED.value());
             orderRepository.save(optOrder.get());
+            emitOrderUpdate(optOrder.get());
         } else {
             log.info("Can't find Order for Order Id:{}", event.getOrderId());
         }
@@ -216,6 +232,7 @@ public class OrderEventsHandler {
 
         try {
            orderRepository.delete(optOrder.get());
+           completeOrderSubscription(event.getOrderId());
 
         } catch(Exception e) {
             log.error(e.getMessage());
@@ -234,11 +251,26 @@ public class OrderEventsHandler {
             Order order = optOrder.get();
             order.setOrderStatus(OrderStatusEnum.COMPLETED.value());
             orderRepository.save(order);
+            emitOrderUpdate(order);
         } catch(Exception e) {
             log.error(e.getMessage());
         }
     }
 
+    //===================== Subscription Query 구독자에게 변경 전송 ===========
+    //-- Unit of Work가 commit된 후에 전송됨
+    private void emitOrderUpdate(Order order) {
+        queryUpdateEmitter.emit(q -> isOrderSubscription(q, order.getOrderId()), OrderQueryHandler.toOrderDTO(order));
+    }
+
+    private void completeOrderSubscription(String orderId) {
+        queryUpdateEmitter.complete(q -> isOrderSubscription(q, orderId));
+    }
+
+    private boolean isOrderSubscription(SubscriptionQueryMessage<?, ?, ?> query, String orderId) {
+        return Queries.ORDER_BY_ORDER_ID.equals(query.getQueryName()) && orderId.equals(query.getPayload());
+    }
+
     //===================== 전체 이벤트 Replay하여 DB에 최종 상태 저장 ===========
     @ResetHandler
     private void replayAll() {
@@ -6,6 +6,7 @@ package com.agilemall.order.queries;
     ReportDTO report = queryGateway.query(Constants.QUERY_REPORT, event.getOrderId(),
                 ResponseTypes.instanceOf(ReportDTO.class)).join();
     - @QueryHandler 어노테이션의 queryName과 매칭되는 QueryHandler가 수행됨
+    - ORDER_BY_ORDER_ID는 Subscription Query의 최초 결과로도 사용되며, 이후 변경은 OrderEventsHandler가 QueryUpdateEmitter로 전송함
 */
 
 import com.agilemall.common.dto.OrderDTO;
@@ -54,17 +55,17 @@ public class OrderQueryHandler {
         log.info("[@QueryHandler] Handle <{}> for Order Id: {}", Queries.ORDER_BY_ORDER_ID ,orderId);
 
         Optional<Order> optOrder = orderRepository.findById(orderId);
-        if(optOrder.isPresent()) {
-            Order order = optOrder.get();
-            OrderDTO orderDTO = new OrderDTO();
-            BeanUtils.copyProperties(order, orderDTO);
-            List<OrderDetailDTO> newOrderDetails = order.getOrderDetails().stream()
-                    .map(o -> new OrderDetailDTO(orderId, o.getOrderDetailIdentity().getProductId(), o.getQty(), o.getOrderAmt()))
-                    .collect(Collectors.toList());
-            orderDTO.setOrderDetails(newOrderDetails);
-            return orderDTO;
-        } else {
-            return null;
-        }
+        return optOrder.map(OrderQueryHandler::toOrderDTO).orElse(null);
+    }
+
+    //-- Order entity를 Query 응답용 OrderDTO로 변환
+    public static OrderDTO toOrderDTO(Order order) {
+        OrderDTO orderDTO = new OrderDTO();
+        BeanUtils.copyProperties(order, orderDTO);
+        List<OrderDetailDTO> newOrderDetails = order.getOrderDetails().stream()
+                .map(o -> new OrderDetailDTO(order.getOrderId(), o.getOrderDetailIdentity().getProductId(), o.getQty(), o.getOrderAmt()))
+                .collect(Collectors.toList());
+        orderDTO.setOrderDetails(newOrderDetails);
+        return orderDTO;
     }
 }
@@ -1,7 +1,13 @@
 package com.agilemall.order.repository;
 
 import com.agilemall.order.entity.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 public interface OrderRepository extends JpaRepository<Order, String> {
+    //-- 주문상세 정보까지 한번에 읽음. 요청 thread 밖(Reactive API)에서 Lazy loading 없이 사용하기 위함
+    @EntityGraph(attributePaths = "orderDetails")
+    Optional<Order> findWithOrderDetailsByOrderId(String orderId);
 }
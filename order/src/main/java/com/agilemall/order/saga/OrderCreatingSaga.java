@@ -3,17 +3,22 @@ package com.agilemall.order.saga;
 - 목적: 신규 주문 처리를 위한 Saga 프로세스 처리
 - 설명
     - 정상 처리: CreatedOrderEvent -> CreatedPaymentEvent ->  CreatedDeliveryEvent -> CompletedCreateOrderEvent
-    - 실패 처리: 보상처리(Compensating tranaction) 수행
+    - 병렬 처리(agilemall.saga.create-order.parallel=true, 기본값 false): 배송 생성은 결제 결과와 무관하므로 결제/배송 생성 Command를 같이 발송하고,
+      CreatedPaymentEvent, CreatedDeliveryEvent를 모두 받으면(순서 무관) 주문완료 처리를 요청함
+    - 실패 처리: 보상처리(Compensating tranaction) 수행. 이미 생성된 결제/배송은 동시에 취소하고, 모두 끝나면 주문 생성 취소
       - FailedCreateOrderEvent: compensatingService.cancelCreateOrder
-      - FailedCreatePaymentEvent: compensatingService.cancelCreateOrder
-      - FailedCreateDeliveryEvent: compensatingService.cancelCreatePayment -> compensatingService.cancelCreateOrder
-      - FailedCompleteCreateOrderEvent: compensatingService.cancelCreateDelivery -> compensatingService.cancelCreatePayment -> compensatingService.cancelCreateOrder
+      - FailedCreatePaymentEvent: (배송이 생성되었으면 compensatingService.cancelCreateDelivery) -> compensatingService.cancelCreateOrder
+      - FailedCreateDeliveryEvent: (결제가 생성되었으면 compensatingService.cancelCreatePayment) -> compensatingService.cancelCreateOrder
+      - FailedCompleteCreateOrderEvent: (compensatingService.cancelCreateDelivery, compensatingService.cancelCreatePayment 동시 수행) -> compensatingService.cancelCreateOrder
+      - 병렬 처리에서 한쪽이 아직 처리 중이면 그 결과(생성, 실패, 제한시간 초과)를 받을 때까지 Saga를 종료하지 않음
+    - Command는 compensatingService.dispatch로 비동기 발송하고, 단계마다 다음 Event를 기다릴 deadline을 등록함
+      - deadline 만료 또는 Command 발송 실패 시 @DeadlineHandler에서 보상처리를 시작함 (SagaDeadlineService 참조)
+      - 보상처리 시작 후 늦게 도착한 생성 Event는 해당 생성 취소를 요청함
     - 정상 처리 완료 시 compensatingService.updateReportReport 호출하여 Report service에 조회용 데이터 생성
 */
 
 import com.agilemall.common.command.create.CreateDeliveryCommand;
 import com.agilemall.common.command.create.CreatePaymentCommand;
-import com.agilemall.common.config.Constants;
 import com.agilemall.common.dto.DeliveryStatusEnum;
 import com.agilemall.common.dto.OrderStatusEnum;
 import com.agilemall.common.dto.ServiceNameEnum;
@@ -21,40 +26,81 @@ import com.agilemall.common.events.create.CreatedDeliveryEvent;
 import com.agilemall.common.events.create.CreatedPaymentEvent;
 import com.agilemall.common.events.create.FailedCreateDeliveryEvent;
 import com.agilemall.common.events.create.FailedCreatePaymentEvent;
+import com.agilemall.common.id.IdGenerator;
 import com.agilemall.order.command.CompleteOrderCreateCommand;
+import com.agilemall.order.dto.OrderProgressEnum;
 import com.agilemall.order.events.*;
 import com.agilemall.order.service.CompensatingService;
+import com.agilemall.order.service.CompensationPlan;
+import com.agilemall.order.service.OrderProgressService;
+import com.agilemall.order.service.SagaDeadlineService;
+import com.agilemall.order.service.SagaMetricsService;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RandomStringUtils;
-import org.axonframework.commandhandling.gateway.CommandGateway;
-import org.axonframework.modelling.saga.EndSaga;
+import org.axonframework.deadline.annotation.DeadlineHandler;
 import org.axonframework.modelling.saga.SagaEventHandler;
 import org.axonframework.modelling.saga.SagaLifecycle;
 import org.axonframework.modelling.saga.StartSaga;
 import org.axonframework.spring.stereotype.Saga;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.util.HashMap;
-import java.util.concurrent.TimeUnit;
 
 @Saga
 @Slf4j
 public class OrderCreatingSaga {
+    //-- 단계별 deadline 이름. 제한시간은 agilemall.saga.deadline.<이름> 으로 설정
+    private static final String PAYMENT_DEADLINE = "create-order.payment";
+    private static final String DELIVERY_DEADLINE = "create-order.delivery";
+    private static final String COMPLETE_DEADLINE = "create-order.complete";
+
     //-- 주문ID, 결제ID, 배송ID값을 담은 변수
     private final HashMap<String, String> aggregateIdMap = new HashMap<>();
-
-    private transient CommandGateway commandGateway;
-    @Autowired
-    public void setCommandGateway(CommandGateway commandGateway) {
-        this.commandGateway = commandGateway;
+    //-- 보상처리 시작 여부. 실패 Event, deadline 만료가 겹쳐도 보상처리는 한번만 수행함
+    private boolean isCompensating = false;
+    //-- 단계별 소요시간 측정용 (SagaMetricsService 참조)
+    private SagaTimeline timeline;
+    //-- 결제/배송 생성 Command를 같이 발송했는지 여부. Saga 시작 시점의 설정을 보관하여 처리 중에 설정이 바뀌어도 영향 없음
+    private boolean isParallel = false;
+    //-- 결제/배송 생성 Command 발송 후 결과를 기다리는 중인지 여부
+    private boolean isPaymentPending = false;
+    private boolean isDeliveryPending = false;
+    //-- 결제/배송 생성 완료 여부. 둘 다 생성되어야 주문완료 처리를 요청하며, 보상처리 대상을 정할 때도 사용함
+    private boolean isPaymentCreated = false;
+    private boolean isDeliveryCreated = false;
+    private boolean isOrderCancelled = false;
+
+    private transient boolean parallelEnabled;
+    @Value("${agilemall.saga.create-order.parallel:false}")
+    public void setParallelEnabled(boolean parallelEnabled) {
+        this.parallelEnabled = parallelEnabled;
     }
 
-    private CompensatingService compensatingService;
+    private transient CompensatingService compensatingService;
     @Autowired
     public void setCompensatingService(CompensatingService compensatingService) {
         this.compensatingService = compensatingService;
     }
 
+    //-- 비동기 주문 요청의 진행 단계 기록
+    private transient OrderProgressService orderProgressService;
+    @Autowired
+    public void setOrderProgressService(OrderProgressService orderProgressService) {
+        this.orderProgressService = orderProgressService;
+    }
+
+    private transient SagaDeadlineService sagaDeadlineService;
+    @Autowired
+    public void setSagaDeadlineService(SagaDeadlineService sagaDeadlineService) {
+        this.sagaDeadlineService = sagaDeadlineService;
+    }
+
+    private transient SagaMetricsService sagaMetricsService;
+    @Autowired
+    public void setSagaMetricsService(SagaMetricsService sagaMetricsService) {
+        this.sagaMetricsService = sagaMetricsService;
+    }
+
     //================== 정상 처리 프로세스 ====================
 
     //-- 결제정보 생성 요청
@@ -62,7 +108,7 @@ public class OrderCreatingSaga {
     @SagaEventHandler(associationProperty = "orderId")  //Event 메시지의 Unique한 구별자
     private void on(CreatedOrderEvent event) {
         log.info("[Saga] <CreatedOrderEvent> is received for Order Id: {}", event.getOrderId());
-        log.info("===== [Create Order] #3: <CreatePaymentCommand> =====");
+        log.info("===== [Create Order] #3: <CreatePaymentCommand>{} =====", parallelEnabled ? ", <CreateDeliveryCommand>" : "");
 
         //-- 보상처리인 경우 더 이상 진행안되게 함
         if(event.isCompensation()) {
@@ -72,6 +118,9 @@ public class OrderCreatingSaga {
         }
 
         aggregateIdMap.put(ServiceNameEnum.ORDER.value(), event.getOrderId());
+        isParallel = parallelEnabled;
+        timeline = sagaMetricsService.start(SagaMetricsService.CREATE_ORDER, "CreatedOrder");
+        orderProgressService.record(event.getOrderId(), OrderProgressEnum.ORDER_CREATED);
 
         //결제 처리 요청 Command메시지 생성
         CreatePaymentCommand createPaymentCommand = CreatePaymentCommand.builder()
@@ -82,21 +131,21 @@ public class OrderCreatingSaga {
                 .build();
 
         //-- 결제 처리 요청 Command메시지 발송. 이 요청은 Axon서버가 Payment의 PaymentAggregate로 전달함
-        try {
-            commandGateway.sendAndWait(createPaymentCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.error("Error is occurred during handle <CreatePaymentCommand>: {}", e.getMessage());
-            log.info("===== [Create Order] Compensate <CancelCreateOrderCommand>");
-            //발송실패 또는 Command Handler 수행 에러 시 보상 처리인 주문 생성 취소 처리를 요청함
-            compensatingService.cancelCreateOrder(aggregateIdMap);
+        //-- 발송실패, Command Handler 수행 에러, 제한시간 초과 시 보상 처리인 주문 생성 취소 처리를 요청함
+        sagaDeadlineService.schedule(PAYMENT_DEADLINE);
+        isPaymentPending = true;
+        compensatingService.dispatch(createPaymentCommand, sagaDeadlineService.onFailure(PAYMENT_DEADLINE));
+
+        //-- 병렬 처리: 배송 생성은 결제 결과와 무관하므로 결제 결과를 기다리지 않고 같이 요청함
+        if(isParallel) {
+            requestCreateDelivery(event.getOrderId());
         }
     }
 
-    //-- 배송정보 생성 요청
+    //-- 배송정보 생성 요청. 병렬 처리면 배송정보 생성 여부를 확인하여 주문완료 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CreatedPaymentEvent event) {
         log.info("[Saga] <CreatedPaymentEvent> is received for Order Id: {}", event.getOrderId());
-        log.info("===== [Create Order] #4: <CreateDeliveryCommand> =====");
 
         //-- 보상처리인 경우 더 이상 진행안되게 함
         if(event.isCompensation()) {
@@ -105,21 +154,23 @@ public class OrderCreatingSaga {
         }
 
         aggregateIdMap.put(ServiceNameEnum.PAYMENT.value(), event.getPaymentId());
-
-        CreateDeliveryCommand createDeliveryCommand = CreateDeliveryCommand.builder()
-                .deliveryId("SHIP_"+RandomStringUtils.random(10, false, true))
-                .orderId(event.getOrderId())
-                .deliveryStatus(DeliveryStatusEnum.CREATED.value())
-                .build();
-
-        try {
-            commandGateway.sendAndWait(createDeliveryCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.info("Error is occurred during handle <CreateDeliveryCommand>: {}", e.getMessage());
-            log.info("===== [Create Order] Compensate <CancelCreatePaymentCommand> ====");
+        isPaymentPending = false;
+        if(isCompensating) {
+            log.info("===== [Create Order] Compensate late <CreatedPaymentEvent> ====");
             compensatingService.cancelCreatePayment(aggregateIdMap);
-            log.info("===== [Create Order] Compensate <CancelCreateOrderCommand> ====");
-            compensatingService.cancelCreateOrder(aggregateIdMap);
+            endIfSettled();
+            return;
+        }
+        sagaDeadlineService.cancel(PAYMENT_DEADLINE);
+        isPaymentCreated = true;
+        sagaMetricsService.step(timeline, "CreatedPayment");
+        recordCreatedProgress(event.getOrderId());
+
+        if(isParallel) {
+            requestCompleteOrder(event.getOrderId());
+        } else {
+            log.info("===== [Create Order] #4: <CreateDeliveryCommand> =====");
+            requestCreateDelivery(event.getOrderId());
         }
     }
 
@@ -127,34 +178,74 @@ public class OrderCreatingSaga {
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CreatedDeliveryEvent event) {
         log.info("[Saga] <CreatedDeliveryEvent> is received for Order Id: {}", event.getOrderId());
-        log.info("===== [Create Order] #5: <CompleteOrderCreateCommand> =====");
 
         aggregateIdMap.put(ServiceNameEnum.DELIVERY.value(), event.getDeliveryId());
+        isDeliveryPending = false;
+        if(isCompensating) {
+            log.info("===== [Create Order] Compensate late <CreatedDeliveryEvent> ====");
+            compensatingService.cancelCreateDelivery(aggregateIdMap);
+            endIfSettled();
+            return;
+        }
+        sagaDeadlineService.cancel(DELIVERY_DEADLINE);
+        isDeliveryCreated = true;
+        sagaMetricsService.step(timeline, "CreatedDelivery");
+        recordCreatedProgress(event.getOrderId());
+        requestCompleteOrder(event.getOrderId());
+    }
+
+    //-- 배송정보 생성 Command 발송
+    private void requestCreateDelivery(String orderId) {
+        CreateDeliveryCommand createDeliveryCommand = CreateDeliveryCommand.builder()
+                .deliveryId(IdGenerator.DELIVERY.nextId())
+                .orderId(orderId)
+                .deliveryStatus(DeliveryStatusEnum.CREATED.value())
+                .build();
+
+        sagaDeadlineService.schedule(DELIVERY_DEADLINE);
+        isDeliveryPending = true;
+        compensatingService.dispatch(createDeliveryCommand, sagaDeadlineService.onFailure(DELIVERY_DEADLINE));
+    }
+
+    //-- 결제/배송이 모두 생성되었으면 주문완료 Command 발송. 병렬 처리에서는 나중에 도착한 Event에서 발송됨
+    private void requestCompleteOrder(String orderId) {
+        if(!isPaymentCreated || !isDeliveryCreated) {
+            log.info("[Saga] Wait for {} to be created for Order Id: {}", isPaymentCreated ? "Delivery" : "Payment", orderId);
+            return;
+        }
+        log.info("===== [Create Order] #5: <CompleteOrderCreateCommand> =====");
         CompleteOrderCreateCommand completeOrderCreateCommand = CompleteOrderCreateCommand.builder()
-                .orderId(event.getOrderId())
+                .orderId(orderId)
                 .orderStatus(OrderStatusEnum.COMPLETED.value())
                 .build();
 
-        try {
-            commandGateway.sendAndWait(completeOrderCreateCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.info("Error is occurred during handle <CompleteOrderCreateCommand>: {}", e.getMessage());
+        sagaDeadlineService.schedule(COMPLETE_DEADLINE);
+        compensatingService.dispatch(completeOrderCreateCommand, sagaDeadlineService.onFailure(COMPLETE_DEADLINE));
+    }
 
-            log.info("===== [Create Order] Compensate <CancelCreateDeliveryCommand> ====");
-            compensatingService.cancelCreateDelivery(aggregateIdMap);
-            log.info("===== [Create Order] Compensate <CancelCreatePaymentCommand> ====");
-            compensatingService.cancelCreatePayment(aggregateIdMap);
-            log.info("===== [Create Order] Compensate <CancelCreateOrderCommand> ====");
-            compensatingService.cancelCreateOrder(aggregateIdMap);
+    //-- 병렬 처리에서는 배송이 먼저 생성될 수 있으므로, 결제/배송이 모두 생성된 경우에만 배송생성 단계로 기록
+    private void recordCreatedProgress(String orderId) {
+        if(isPaymentCreated && isDeliveryCreated) {
+            orderProgressService.record(orderId, OrderProgressEnum.DELIVERY_CREATED);
+        } else if(isPaymentCreated) {
+            orderProgressService.record(orderId, OrderProgressEnum.PAYMENT_CREATED);
         }
     }
 
     //-- 주문완료 후 처리
-    @EndSaga
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CompletedCreateOrderEvent event) {
         log.info("[Saga] [CompletedCreateOrderEvent] is received for Order Id: {}", event.getOrderId());
+        sagaDeadlineService.cancel(COMPLETE_DEADLINE);
+        //-- 제한시간 초과로 보상처리(배송, 결제, 주문 생성 취소)가 이미 진행 중이면 레포트를 만들지 않고 취소 완료를 기다림
+        if(isCompensating) {
+            log.info("===== [Create Order] Completed after compensation is started. Wait for cancellation =====");
+            return;
+        }
+        SagaLifecycle.end();
+        sagaMetricsService.end(timeline, "CompletedCreateOrder", SagaMetricsService.COMPLETED);
         log.info("===== [Create Order] Transaction is FINISHED =====");
+        orderProgressService.record(event.getOrderId(), OrderProgressEnum.COMPLETED);
 
         //-- Report service에 레포트 생성 요청
         compensatingService.updateReport(event.getOrderId(), true);
@@ -166,51 +257,100 @@ public class OrderCreatingSaga {
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedCreateOrderEvent event) {
         log.info("[Saga] <FailedCreateOrderEvent> is received for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Create Order] Compensate <CancelCreateOrderCommand> ====");
-        compensatingService.cancelCreateOrder(this.aggregateIdMap);
+        startCompensation(createdAndOrderPlan());
     }
 
     //-- 결제정보 생성 실패 시 보상 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedCreatePaymentEvent event) {
         log.info("[Saga] <FailedCreatePaymentEvent> is received for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Create Order] Compensate <CancelCreateOrderCommand> ====");
-        compensatingService.cancelCreateOrder(this.aggregateIdMap);
+        isPaymentPending = false;
+        startCompensation(createdAndOrderPlan());
     }
 
     //-- 배송정보 생성 실패 시 보상 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedCreateDeliveryEvent event) {
         log.info("[Saga] Handle <FailedCreateDeliveryEvent> for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Create Order] Compensate <CancelCreatePaymentCommand> ====");
-        compensatingService.cancelCreatePayment(this.aggregateIdMap);
-        log.info("===== [Create Order] Compensate <CancelCreateOrderCommand> ====");
-        compensatingService.cancelCreateOrder(this.aggregateIdMap);
+        isDeliveryPending = false;
+        startCompensation(createdAndOrderPlan());
     }
 
     //-- 주문완료 처리 실패 시 보상 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedCompleteCreateOrderEvent event) {
         log.info("[Saga] Handle <FailedCompleteCreateOrderEvent> for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Create Order] Compensate <CancelCreateDeliveryCommand> ====");
-        compensatingService.cancelCreateDelivery(this.aggregateIdMap);
-        log.info("===== [Create Order] Compensate <CancelCreatePaymentCommand> ====");
-        compensatingService.cancelCreatePayment(this.aggregateIdMap);
-        log.info("===== [Create Order] Compensate <CancelCreateOrderCommand> ====");
-        compensatingService.cancelCreateOrder(this.aggregateIdMap);
-
+        startCompensation(createdAndOrderPlan());
     }
 
-    //-- 주문 생성 취소 완료 시
-    @EndSaga
+    //-- 주문 생성 취소 완료 시. 병렬 처리에서 아직 결과를 받지 못한 결제/배송 생성이 있으면 그 결과를 받은 후 종료함
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CancelledCreateOrderEvent event) {
         log.info("[Saga] CancelledCreateOrderEvent is received for Order Id: {}", event.getOrderId());
         log.info("===== [Create Order] Transaction is Aborted =====");
+        isOrderCancelled = true;
+        sagaMetricsService.end(timeline, "CancelledCreateOrder", SagaMetricsService.COMPENSATED);
+        orderProgressService.record(event.getOrderId(), OrderProgressEnum.CANCELLED);
+        endIfSettled();
     }
 
+    //================= 단계별 제한시간 초과(또는 Command 발송 실패) 처리 =====================
+
+    @DeadlineHandler(deadlineName = PAYMENT_DEADLINE)
+    private void onPaymentDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", PAYMENT_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        isPaymentPending = false;
+        startCompensation(createdAndOrderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = DELIVERY_DEADLINE)
+    private void onDeliveryDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", DELIVERY_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        isDeliveryPending = false;
+        startCompensation(createdAndOrderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = COMPLETE_DEADLINE)
+    private void onCompleteDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", COMPLETE_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        startCompensation(createdAndOrderPlan());
+    }
+
+    //-- 남은 deadline을 취소하고 보상처리 시작. 이미 시작했으면 Saga 종료 가능 여부만 확인함
+    //-- 결과를 기다리는 결제/배송 생성의 deadline은 남겨두어, 끝내 결과가 오지 않아도 Saga가 종료되게 함
+    private void startCompensation(CompensationPlan plan) {
+        if(isCompensating) {
+            log.info("Compensation is already started. So, Do nothing.");
+            endIfSettled();
+            return;
+        }
+        isCompensating = true;
+        sagaMetricsService.step(timeline, "Compensating");
+        sagaDeadlineService.cancel(COMPLETE_DEADLINE);
+        if(!isPaymentPending) sagaDeadlineService.cancel(PAYMENT_DEADLINE);
+        if(!isDeliveryPending) sagaDeadlineService.cancel(DELIVERY_DEADLINE);
+        orderProgressService.record(aggregateIdMap.get(ServiceNameEnum.ORDER.value()), OrderProgressEnum.COMPENSATING);
+        compensatingService.execute(plan);
+    }
+
+    //-- 주문 생성이 취소되었고 결과를 기다리는 결제/배송 생성이 없으면 Saga 종료
+    private void endIfSettled() {
+        if(isOrderCancelled && !isPaymentPending && !isDeliveryPending) {
+            SagaLifecycle.end();
+        }
+    }
+
+    //-- 생성된 결제/배송은 서로 의존하지 않으므로 동시에 취소 요청하고, 모두 끝나면 주문 생성 취소
+    //-- 아직 결과를 받지 못한 결제/배송은 늦게 생성 Event가 도착하면 그때 취소함
+    private CompensationPlan createdAndOrderPlan() {
+        CompensationPlan plan = CompensationPlan.of("Create Order", aggregateIdMap);
+        if(isDeliveryCreated && isPaymentCreated) {
+            plan.concurrently(compensatingService::cancelCreateDelivery, compensatingService::cancelCreatePayment);
+        } else if(isDeliveryCreated) {
+            plan.then(compensatingService::cancelCreateDelivery);
+        } else if(isPaymentCreated) {
+            plan.then(compensatingService::cancelCreatePayment);
+        }
+        return plan.then(compensatingService::cancelCreateOrder);
+    }
 }
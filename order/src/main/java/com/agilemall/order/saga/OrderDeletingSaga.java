@@ -6,13 +6,20 @@ package com.agilemall.order.saga;
     - 실패 처리: 보상처리(Compensating tranaction) 수행
       - FailedDeletePaymentEvent: compensatingService.cancelDeleteOrder
       - FailedDeleteDeliveryEvent: compensatingService.cancelDeletePayment -> compensatingService.cancelDeleteOrder
-      - FailedDeleteReportEvent: compensatingService.cancelDeleteDelivery -> compensatingService.cancelDeletePayment -> compensatingService.cancelDeleteOrder
-      - FailedCompleteDeleteOrderEvent: compensatingService.cancelDeleteReport -> compensatingService.cancelDeleteDelivery -> compensatingService.cancelDeletePayment -> compensatingService.cancelDeleteOrder
+      - 레포트 삭제 실패: 실패 Event가 없으므로 onReportDeadline(제한시간 초과)에서 처리함
+        (compensatingService.cancelDeleteDelivery, compensatingService.cancelDeletePayment 동시 수행) -> compensatingService.cancelDeleteOrder
+      - FailedCompleteDeleteOrderEvent: (compensatingService.cancelDeleteDelivery, compensatingService.cancelDeletePayment 동시 수행) -> compensatingService.cancelDeleteOrder -> compensatingService.cancelDeleteReport
+    - Command는 compensatingService.dispatch로 비동기 발송하고, 단계마다 다음 Event를 기다릴 deadline을 등록함
+      - deadline 만료 또는 Command 발송 실패 시 @DeadlineHandler에서 보상처리를 시작함 (SagaDeadlineService 참조)
+      - 보상처리 시작 후 늦게 도착한 삭제 Event는 해당 삭제의 rollback을 요청함
+      - 보상처리 시작 시 결과를 기다리는 단계의 deadline은 남겨두고, 그 결과(삭제, 실패, 제한시간 초과)를 받을 때까지 Saga를 종료하지 않음
+    - 각 서비스의 ID는 주문 취소 요청 시 조회하여 DeletedOrderEvent에 담아 전달되므로 Saga에서 Query를 요청하지 않음
+      - 단, ID가 없는 이전(revision 1) Event는 레포트에서 ID를 조회함. 결과를 기다리지 않고 조회 결과를 deadline으로 전달받음
+        (SagaDeadlineService.onResult 참조). 레포트를 찾지 못하거나 제한시간을 넘으면 주문 rollback을 수행함
 */
 import com.agilemall.common.command.delete.DeleteDeliveryCommand;
 import com.agilemall.common.command.delete.DeletePaymentCommand;
 import com.agilemall.common.command.delete.DeleteReportCommand;
-import com.agilemall.common.config.Constants;
 import com.agilemall.common.dto.ReportDTO;
 import com.agilemall.common.dto.ServiceNameEnum;
 import com.agilemall.common.events.delete.*;
@@ -23,31 +30,47 @@ import com.agilemall.order.events.CompletedDeleteOrderEvent;
 import com.agilemall.order.events.DeletedOrderEvent;
 import com.agilemall.order.events.FailedCompleteDeleteOrderEvent;
 import com.agilemall.order.service.CompensatingService;
+import com.agilemall.order.service.CompensationPlan;
+import com.agilemall.order.service.SagaDeadlineService;
+import com.agilemall.order.service.SagaMetricsService;
 import lombok.extern.slf4j.Slf4j;
-import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.deadline.annotation.DeadlineHandler;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
-import org.axonframework.modelling.saga.EndSaga;
 import org.axonframework.modelling.saga.SagaEventHandler;
+import org.axonframework.modelling.saga.SagaLifecycle;
 import org.axonframework.modelling.saga.StartSaga;
 import org.axonframework.queryhandling.QueryGateway;
 import org.axonframework.spring.stereotype.Saga;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.HashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Saga
 @Slf4j
 public class OrderDeletingSaga {
-    private final HashMap<String, String> aggregateIdMap = new HashMap<String, String>();
+    //-- 단계별 deadline 이름. 제한시간은 agilemall.saga.deadline.<이름> 으로 설정
+    private static final String LOOKUP_DEADLINE = "delete-order.lookup";
+    private static final String PAYMENT_DEADLINE = "delete-order.payment";
+    private static final String DELIVERY_DEADLINE = "delete-order.delivery";
+    private static final String REPORT_DEADLINE = "delete-order.report";
+    private static final String COMPLETE_DEADLINE = "delete-order.complete";
+    //-- 레포트 조회 결과 전달용. 제한시간 없이 즉시 만료됨
+    private static final String LOOKUP_RESULT = "delete-order.lookup-result";
+    private static final String[] DEADLINES = {LOOKUP_DEADLINE, PAYMENT_DEADLINE, DELIVERY_DEADLINE, REPORT_DEADLINE, COMPLETE_DEADLINE};
 
-    private transient CommandGateway commandGateway;
-    @Autowired
-    public void setCommandGateway(CommandGateway commandGateway) {
-        this.commandGateway = commandGateway;
-    }
+    private final HashMap<String, String> aggregateIdMap = new HashMap<String, String>();
+    //-- 보상처리 시작 여부. 실패 Event, deadline 만료가 겹쳐도 보상처리는 한번만 수행함
+    private boolean isCompensating = false;
+    //-- 단계별 소요시간 측정용 (SagaMetricsService 참조)
+    private SagaTimeline timeline;
+    //-- Command 발송 후 결과를 기다리는 단계의 deadline 이름. 기다리는 단계가 없으면 null
+    private String pendingDeadline;
+    private boolean isOrderCancelled = false;
 
-    private CompensatingService compensatingService;
+    private transient CompensatingService compensatingService;
     @Autowired
     public void setCompensatingService(CompensatingService compensatingService) {
         this.compensatingService = compensatingService;
@@ -59,6 +82,18 @@ public class OrderDeletingSaga {
         this.queryGateway = queryGateway;
     }
 
+    private transient SagaDeadlineService sagaDeadlineService;
+    @Autowired
+    public void setSagaDeadlineService(SagaDeadlineService sagaDeadlineService) {
+        this.sagaDeadlineService = sagaDeadlineService;
+    }
+
+    private transient SagaMetricsService sagaMetricsService;
+    @Autowired
+    public void setSagaMetricsService(SagaMetricsService sagaMetricsService) {
+        this.sagaMetricsService = sagaMetricsService;
+    }
+
     //======================== 정상 처리 =============================
 
     //-- 결제 정보 삭제 요청
@@ -68,33 +103,68 @@ public class OrderDeletingSaga {
         log.info("[Saga] DeletedOrderEvent is received for Order Id: {}", event.getOrderId());
         log.info("===== [Delete Order] #2: <DeletePaymentCommand> =====");
 
-        //--Report data에서 각 서비스의 Id값을 구함
-        ReportDTO report = queryGateway.query(Queries.REPORT_BY_ORDER_ID, event.getOrderId(),
-                ResponseTypes.instanceOf(ReportDTO.class)).join();
-        if(report == null) {
-            log.info("Can't find Report info for Order Id: {}", event.getOrderId());
+        aggregateIdMap.put(ServiceNameEnum.ORDER.value(), event.getOrderId());
+        timeline = sagaMetricsService.start(SagaMetricsService.DELETE_ORDER, "DeletedOrder");
+
+        //-- 각 서비스의 Id값은 Event에 담겨 있음. revision 1 Event는 ID가 없으므로 레포트에서 조회함
+        if(event.getPaymentId() == null || event.getDeliveryId() == null || event.getReportId() == null) {
+            log.info("Can't find Payment/Delivery/Report Id in <DeletedOrderEvent>. Look up Report info for Order Id: {}", event.getOrderId());
+            lookUpIds(event.getOrderId());
+            return;
+        }
+        aggregateIdMap.put(ServiceNameEnum.PAYMENT.value(), event.getPaymentId());
+        aggregateIdMap.put(ServiceNameEnum.DELIVERY.value(), event.getDeliveryId());
+        aggregateIdMap.put(ServiceNameEnum.REPORT.value(), event.getReportId());
+        requestDeletePayment();
+    }
+
+    //-- 레포트에서 조회한 각 서비스의 Id값을 받아 결제 정보 삭제 요청
+    @DeadlineHandler(deadlineName = LOOKUP_RESULT)
+    private void onIdsFound(HashMap<String, String> ids) {
+        //-- 제한시간 초과로 이미 보상처리를 시작했으면 무시함
+        if(!LOOKUP_DEADLINE.equals(pendingDeadline)) {
+            log.info("[Saga] Report info is received too late for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
             return;
         }
-        aggregateIdMap.put(ServiceNameEnum.ORDER.value(), report.getOrderId());
-        aggregateIdMap.put(ServiceNameEnum.PAYMENT.value(), report.getPaymentId());
-        aggregateIdMap.put(ServiceNameEnum.DELIVERY.value(), report.getDeliveryId());
-        aggregateIdMap.put(ServiceNameEnum.REPORT.value(), report.getReportId());
+        settle(LOOKUP_DEADLINE);
+        aggregateIdMap.putAll(ids);
+        sagaMetricsService.step(timeline, "FoundIds");
+        requestDeletePayment();
+    }
+
+    //-- 레포트에서 각 서비스의 Id값 조회. 결과는 onIdsFound, 실패 또는 제한시간 초과는 onLookupDeadline에서 처리함
+    private void lookUpIds(String orderId) {
+        sagaDeadlineService.schedule(LOOKUP_DEADLINE);
+        pendingDeadline = LOOKUP_DEADLINE;
+        Consumer<HashMap<String, String>> onFound = sagaDeadlineService.onResult(LOOKUP_RESULT);
+        Supplier<CompletableFuture<Void>> onFailure = sagaDeadlineService.onFailure(LOOKUP_DEADLINE);
+
+        queryGateway.query(Queries.REPORT_BY_ORDER_ID, orderId, ResponseTypes.instanceOf(ReportDTO.class))
+                .whenComplete((report, e) -> {
+                    if(e != null || report == null) {
+                        log.info("Fail to get Report info for Order Id: {} => {}", orderId, (e != null) ? e.getMessage() : "not found");
+                        onFailure.get();
+                        return;
+                    }
+                    HashMap<String, String> ids = new HashMap<>();
+                    ids.put(ServiceNameEnum.PAYMENT.value(), report.getPaymentId());
+                    ids.put(ServiceNameEnum.DELIVERY.value(), report.getDeliveryId());
+                    ids.put(ServiceNameEnum.REPORT.value(), report.getReportId());
+                    onFound.accept(ids);
+                });
+    }
 
+    private void requestDeletePayment() {
         //-- 결제 정보 삭제 요청 Command 객체 생성
         DeletePaymentCommand deletePaymentCommand = DeletePaymentCommand.builder()
                 .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
-                .orderId(event.getOrderId())
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
                 .build();
 
         //-- 결제 정보 삭제 요청 발송. Axon서버에 의해 Payment서비스의 PaymentAggregate로 요청됨
-        try {
-            commandGateway.sendAndWait(deletePaymentCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            //throw new Exception("Error is occurred during handle <DeletedOrderEvent>");
-        } catch(Exception e) {
-            log.info(e.getMessage());
-            log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-            compensatingService.cancelDeleteOrder(aggregateIdMap);  //이전 주문 정보로 rollback 요청
-        }
+        sagaDeadlineService.schedule(PAYMENT_DEADLINE);
+        pendingDeadline = PAYMENT_DEADLINE;
+        compensatingService.dispatch(deletePaymentCommand, sagaDeadlineService.onFailure(PAYMENT_DEADLINE));
     }
 
     //-- 배송 정보 삭제 요청
@@ -102,6 +172,14 @@ public class OrderDeletingSaga {
     private void on(DeletedPaymentEvent event) {
         log.info("[Saga] <DeletedPaymentEvent> is received for Order Id: {}", event.getOrderId());
         log.info("===== [Delete Order] #3: <DeleteDeliveryCommand> =====");
+        settle(PAYMENT_DEADLINE);
+        if(isCompensating) {
+            log.info("===== [Delete Order] Compensation late <DeletedPaymentEvent> =====");
+            compensatingService.cancelDeletePayment(aggregateIdMap);    //이전 결제 정보로 rollback 요청
+            endIfSettled();
+            return;
+        }
+        sagaMetricsService.step(timeline, "DeletedPayment");
 
         //-- 배송 정보 삭제 요청 Command객체 생성
         DeleteDeliveryCommand deleteDeliveryCommand = DeleteDeliveryCommand.builder()
@@ -110,15 +188,9 @@ public class OrderDeletingSaga {
                 .build();
 
         //-- 배송 정보 삭제 요청 발송
-        try {
-            commandGateway.sendAndWait(deleteDeliveryCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.info(e.getMessage());
-            log.info("===== [Delete Order] Compensation <CancelDeletePaymentCommand> =====");
-            compensatingService.cancelDeletePayment(aggregateIdMap);    //이전 결제 정보로 rollback 요청
-            log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-            compensatingService.cancelDeleteOrder(aggregateIdMap);      //이전 주문 정보로 rollback 요청
-        }
+        sagaDeadlineService.schedule(DELIVERY_DEADLINE);
+        pendingDeadline = DELIVERY_DEADLINE;
+        compensatingService.dispatch(deleteDeliveryCommand, sagaDeadlineService.onFailure(DELIVERY_DEADLINE));
     }
 
     //-- 레포트 정보 삭제 요청
@@ -126,6 +198,14 @@ public class OrderDeletingSaga {
     private void on(DeletedDeliveryEvent event) {
         log.info("[Saga] <DeletedDeliveryEvent> is received for Order Id: "+ event.getOrderId());
         log.info("===== [Delete Order] #4: <DeleteReportCommand> =====");
+        settle(DELIVERY_DEADLINE);
+        if(isCompensating) {
+            log.info("===== [Delete Order] Compensation late <DeletedDeliveryEvent> =====");
+            compensatingService.cancelDeleteDelivery(aggregateIdMap);   //이전 배송 정보로 rollback 요청
+            endIfSettled();
+            return;
+        }
+        sagaMetricsService.step(timeline, "DeletedDelivery");
 
         //-- 레포트 정보 삭제 요청 Command 객체 생성
         DeleteReportCommand deleteReportCommand = DeleteReportCommand.builder()
@@ -134,18 +214,9 @@ public class OrderDeletingSaga {
                 .build();
 
         //-- 레포트 정보 삭제 요청 발송
-        try {
-            commandGateway.sendAndWait(deleteReportCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.error(e.getMessage());
-
-            log.info("===== [Delete Order] Compensation <CancelDeleteDeliveryCommand> =====");
-            compensatingService.cancelDeleteDelivery(aggregateIdMap);   //이전 배송 정보로 rollback 요청
-            log.info("===== [Delete Order] Compensation <CancelDeletePaymentCommand> =====");
-            compensatingService.cancelDeletePayment(aggregateIdMap);    //이전 결제 정보로 rollback 요청
-            log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-            compensatingService.cancelDeleteOrder(aggregateIdMap);      //이전 주문 정보로 rollback 요청
-        }
+        sagaDeadlineService.schedule(REPORT_DEADLINE);
+        pendingDeadline = REPORT_DEADLINE;
+        compensatingService.dispatch(deleteReportCommand, sagaDeadlineService.onFailure(REPORT_DEADLINE));
     }
 
     //-- 주문 삭제 최종 처리 요청
@@ -153,6 +224,14 @@ public class OrderDeletingSaga {
     private void on(DeletedReportEvent event) {
         log.info("[Saga] <DeletedReportEvent> is received for Order Id: {}", event.getOrderId());
         log.info("===== [Delete Order] #5: <CompleteDeleteOrderCommand> =====");
+        settle(REPORT_DEADLINE);
+        if(isCompensating) {
+            log.info("===== [Delete Order] Compensation late <DeletedReportEvent> =====");
+            compensatingService.cancelDeleteReport(aggregateIdMap);     //이전 레포트 정보로 rollback 요청
+            endIfSettled();
+            return;
+        }
+        sagaMetricsService.step(timeline, "DeletedReport");
 
         //주문 삭제 최종 처리 요청 Command객체 생성
         CompleteDeleteOrderCommand completeDeleteOrderCommand = CompleteDeleteOrderCommand.builder()
@@ -160,28 +239,24 @@ public class OrderDeletingSaga {
                 .build();
 
         //주문 삭제 최종 처리 요청
-        try {
-            commandGateway.sendAndWait(completeDeleteOrderCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            //throw new RuntimeException("주문삭제 보상처리 테스트");
-        } catch(Exception e) {
-            log.error(e.getMessage());
-
-            log.info("===== [Delete Order] Compensation <CancelDeleteDeliveryCommand> =====");
-            compensatingService.cancelDeleteDelivery(aggregateIdMap);   //이전 배송 정보로 rollback 요청
-            log.info("===== [Delete Order] Compensation <CancelDeletePaymentCommand> =====");
-            compensatingService.cancelDeletePayment(aggregateIdMap);    //이전 결제 정보로 rollback 요청
-            log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-            compensatingService.cancelDeleteOrder(aggregateIdMap);      //이전 주문 정보로 rollback 요청
-            log.info("===== [Delete Order] Compensation <CancelDeleteReportCommand> =====");
-            compensatingService.cancelDeleteReport(aggregateIdMap);     //이전 레포트 정보로 rollback 요청
-        }
+        sagaDeadlineService.schedule(COMPLETE_DEADLINE);
+        pendingDeadline = COMPLETE_DEADLINE;
+        compensatingService.dispatch(completeDeleteOrderCommand, sagaDeadlineService.onFailure(COMPLETE_DEADLINE));
     }
 
     //-- 주문 삭제 최종 완료 시 처리
-    @EndSaga
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CompletedDeleteOrderEvent event) {
         log.info("[Saga] [CompletedDeleteOrderEvent] is received for Order Id: {}", event.getOrderId());
+        settle(COMPLETE_DEADLINE);
+        //-- 제한시간 초과로 보상처리가 이미 진행 중이면 rollback 완료(CancelledDeleteOrderEvent)를 기다림
+        if(isCompensating) {
+            log.info("===== [Delete Order] Completed after compensation is started. Wait for cancellation =====");
+            endIfSettled();
+            return;
+        }
+        SagaLifecycle.end();
+        sagaMetricsService.end(timeline, "CompletedDeleteOrder", SagaMetricsService.COMPLETED);
         log.info("===== [Delete Order] Transaction is Finished =====");
     }
 
@@ -191,42 +266,127 @@ public class OrderDeletingSaga {
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedDeletePaymentEvent event) {
         log.info("[Saga] <FailedDeletePaymentEvent> is received for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-        compensatingService.cancelDeleteOrder(aggregateIdMap);  //이전 주문 정보로 rollback 요청
+        settle(PAYMENT_DEADLINE);
+        startCompensation(orderPlan());
     }
 
     //-- 배송 정보 삭제 실패 시 보상 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedDeleteDeliveryEvent event) {
         log.info("[Saga] <FailedDeleteDeliveryEvent> is received for Order Id: "+ event.getOrderId());
-        log.info("===== [Delete Order] Compensation <CancelDeletePaymentCommand> =====");
-        compensatingService.cancelDeletePayment(aggregateIdMap);    //이전 결제 정보로 rollback 요청
-        log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-        compensatingService.cancelDeleteOrder(aggregateIdMap);      //이전 주문 정보로 rollback 요청
+        settle(DELIVERY_DEADLINE);
+        startCompensation(paymentAndOrderPlan());
     }
 
     //-- 주문 삭제 최종 처리 실패 시 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedCompleteDeleteOrderEvent event) {
         log.info("[Saga] [FailedCompleteDeleteOrderEvent] is received for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Delete Order] Compensation <CancelDeleteDeliveryCommand> =====");
-        compensatingService.cancelDeleteDelivery(aggregateIdMap);   //이전 배송 정보로 rollback 요청
-        log.info("===== [Delete Order] Compensation <CancelDeletePaymentCommand> =====");
-        compensatingService.cancelDeletePayment(aggregateIdMap);    //이전 결제 정보로 rollback 요청
-        log.info("===== [Delete Order] Compensation <CancelDeleteOrderCommand> =====");
-        compensatingService.cancelDeleteOrder(aggregateIdMap);      //이전 주문 정보로 rollback 요청
-        log.info("===== [Delete Order] Compensation <CancelDeleteReportCommand> =====");
-        compensatingService.cancelDeleteReport(aggregateIdMap);     //이전 레포트 정보로 rollback 요청
+        settle(COMPLETE_DEADLINE);
+        startCompensation(allPlan());
     }
 
-    //-- 주문 삭제 실패에 대한 보상 처리 완료 시
-    @EndSaga
+    //-- 주문 삭제 실패에 대한 보상 처리 완료 시. 결과를 기다리는 단계가 있으면 그 결과를 받은 후 종료함
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CancelledDeleteOrderEvent event) {
         log.info("[Saga] <CancelledDeleteOrderEvent> is received for Order Id: {}", event.getOrderId());
 
         log.info("===== [Delete Order] Transaction is Abortd =====");
+        isOrderCancelled = true;
+        sagaMetricsService.end(timeline, "CancelledDeleteOrder", SagaMetricsService.COMPENSATED);
+        endIfSettled();
+    }
+
+    //================= 단계별 제한시간 초과(또는 Command 발송 실패) 처리 =====================
+
+    //-- 레포트를 찾지 못했거나 조회 제한시간 초과. 주문만 삭제되었으므로 주문을 rollback함
+    @DeadlineHandler(deadlineName = LOOKUP_DEADLINE)
+    private void onLookupDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", LOOKUP_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(LOOKUP_DEADLINE);
+        startCompensation(orderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = PAYMENT_DEADLINE)
+    private void onPaymentDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", PAYMENT_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(PAYMENT_DEADLINE);
+        startCompensation(orderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = DELIVERY_DEADLINE)
+    private void onDeliveryDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", DELIVERY_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(DELIVERY_DEADLINE);
+        startCompensation(paymentAndOrderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = REPORT_DEADLINE)
+    private void onReportDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", REPORT_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(REPORT_DEADLINE);
+        startCompensation(deliveryPaymentAndOrderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = COMPLETE_DEADLINE)
+    private void onCompleteDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", COMPLETE_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(COMPLETE_DEADLINE);
+        startCompensation(allPlan());
+    }
+
+    //-- 남은 deadline을 취소하고 보상처리 시작. 이미 시작했으면 Saga 종료 가능 여부만 확인함
+    //-- 결과를 기다리는 단계의 deadline은 남겨두어, 끝내 결과가 오지 않아도 Saga가 종료되게 함
+    private void startCompensation(CompensationPlan plan) {
+        if(isCompensating) {
+            log.info("Compensation is already started. So, Do nothing.");
+            endIfSettled();
+            return;
+        }
+        isCompensating = true;
+        sagaMetricsService.step(timeline, "Compensating");
+        for(String deadlineName : DEADLINES) {
+            if(!deadlineName.equals(pendingDeadline)) sagaDeadlineService.cancel(deadlineName);
+        }
+        compensatingService.execute(plan);
+    }
+
+    //-- 단계의 결과(삭제, 실패, 제한시간 초과)를 받으면 해당 deadline을 취소하고 기다리는 단계에서 제외함
+    private void settle(String deadlineName) {
+        sagaDeadlineService.cancel(deadlineName);
+        if(deadlineName.equals(pendingDeadline)) pendingDeadline = null;
+    }
+
+    //-- 주문 삭제가 취소되었고 결과를 기다리는 단계가 없으면 Saga 종료
+    private void endIfSettled() {
+        if(isOrderCancelled && pendingDeadline == null) {
+            SagaLifecycle.end();
+        }
+    }
+
+    //-- 주문을 이전 정보로 rollback
+    private CompensationPlan orderPlan() {
+        return CompensationPlan.of("Delete Order", aggregateIdMap)
+                .then(compensatingService::cancelDeleteOrder);
+    }
+
+    //-- 결제를 이전 정보로 rollback한 후 주문을 이전 정보로 rollback
+    private CompensationPlan paymentAndOrderPlan() {
+        return CompensationPlan.of("Delete Order", aggregateIdMap)
+                .then(compensatingService::cancelDeletePayment)
+                .then(compensatingService::cancelDeleteOrder);
+    }
+
+    //-- 배송/결제 rollback은 서로 의존하지 않으므로 동시에 요청하고, 둘 다 끝나면 주문 rollback
+    private CompensationPlan deliveryPaymentAndOrderPlan() {
+        return CompensationPlan.of("Delete Order", aggregateIdMap)
+                .concurrently(compensatingService::cancelDeleteDelivery, compensatingService::cancelDeletePayment)
+                .then(compensatingService::cancelDeleteOrder);
+    }
+
+    //-- 배송/결제/주문 rollback 후 레포트 복구
+    private CompensationPlan allPlan() {
+        return deliveryPaymentAndOrderPlan()
+                .then(compensatingService::cancelDeleteReport);
     }
 }
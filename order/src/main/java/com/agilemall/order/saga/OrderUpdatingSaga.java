@@ -8,9 +8,12 @@ package com.agilemall.order.saga;
       - FailedUpdatePaymentEvent: compensatingService.cancelUpdateOrder
       - FailedCompleteUpdateOrderEvent: compensatingService.cancelUpdatePayment -> compensatingService.cancelUpdateOrder
     - compensatingService.updateReportReport 호출하여 Report service의 조회용 데이터 갱신
+    - Command는 compensatingService.dispatch로 비동기 발송하고, 단계마다 다음 Event를 기다릴 deadline을 등록함
+      - deadline 만료 또는 Command 발송 실패 시 @DeadlineHandler에서 보상처리를 시작함 (SagaDeadlineService 참조)
+      - 보상처리 시작 후 늦게 도착한 결제 수정 Event는 이전 결제 정보로 rollback을 요청함
+      - 보상처리 시작 시 결과를 기다리는 단계의 deadline은 남겨두고, 그 결과(수정, 실패, 제한시간 초과)를 받을 때까지 Saga를 종료하지 않음
 */
 import com.agilemall.common.command.update.UpdatePaymentCommand;
-import com.agilemall.common.config.Constants;
 import com.agilemall.common.dto.OrderStatusEnum;
 import com.agilemall.common.dto.PaymentStatusEnum;
 import com.agilemall.common.dto.ServiceNameEnum;
@@ -19,9 +22,11 @@ import com.agilemall.common.events.update.UpdatedPaymentEvent;
 import com.agilemall.order.command.CompleteUpdateOrderCommand;
 import com.agilemall.order.events.*;
 import com.agilemall.order.service.CompensatingService;
+import com.agilemall.order.service.CompensationPlan;
+import com.agilemall.order.service.SagaDeadlineService;
+import com.agilemall.order.service.SagaMetricsService;
 import lombok.extern.slf4j.Slf4j;
-import org.axonframework.commandhandling.gateway.CommandGateway;
-import org.axonframework.modelling.saga.EndSaga;
+import org.axonframework.deadline.annotation.DeadlineHandler;
 import org.axonframework.modelling.saga.SagaEventHandler;
 import org.axonframework.modelling.saga.SagaLifecycle;
 import org.axonframework.modelling.saga.StartSaga;
@@ -29,22 +34,40 @@ import org.axonframework.spring.stereotype.Saga;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.HashMap;
-import java.util.concurrent.TimeUnit;
 
 @Saga
 @Slf4j
 public class OrderUpdatingSaga {
+    //-- 단계별 deadline 이름. 제한시간은 agilemall.saga.deadline.<이름> 으로 설정
+    private static final String PAYMENT_DEADLINE = "update-order.payment";
+    private static final String COMPLETE_DEADLINE = "update-order.complete";
+    private static final String[] DEADLINES = {PAYMENT_DEADLINE, COMPLETE_DEADLINE};
+
     private final HashMap<String, String> aggregateIdMap = new HashMap<>();
+    //-- 보상처리 시작 여부. 실패 Event, deadline 만료가 겹쳐도 보상처리는 한번만 수행함
+    private boolean isCompensating = false;
+    //-- 단계별 소요시간 측정용 (SagaMetricsService 참조)
+    private SagaTimeline timeline;
+    //-- Command 발송 후 결과를 기다리는 단계의 deadline 이름. 기다리는 단계가 없으면 null
+    private String pendingDeadline;
+    private boolean isOrderCancelled = false;
+
+    private transient CompensatingService compensatingService;
+    @Autowired
+    public void setCompensatingService(CompensatingService compensatingService) {
+        this.compensatingService = compensatingService;
+    }
 
-    private transient CommandGateway commandGateway;
+    private transient SagaDeadlineService sagaDeadlineService;
     @Autowired
-    public void setCommandGateway(CommandGateway commandGateway) {
-        this.commandGateway = commandGateway;
+    public void setSagaDeadlineService(SagaDeadlineService sagaDeadlineService) {
+        this.sagaDeadlineService = sagaDeadlineService;
     }
-    private CompensatingService compensatingService;
+
+    private transient SagaMetricsService sagaMetricsService;
     @Autowired
-    public void setCompensatingService(CompensatingService compensatingService) {
-        this.compensatingService = compensatingService;
+    public void setSagaMetricsService(SagaMetricsService sagaMetricsService) {
+        this.sagaMetricsService = sagaMetricsService;
     }
 
     //================== 정상 처리 ========================
@@ -63,6 +86,7 @@ public class OrderUpdatingSaga {
 
         aggregateIdMap.put(ServiceNameEnum.ORDER.value(), event.getOrderId());
         aggregateIdMap.put(ServiceNameEnum.PAYMENT.value(), event.getPaymentId());
+        timeline = sagaMetricsService.start(SagaMetricsService.UPDATE_ORDER, "UpdatedOrder");
 
         UpdatePaymentCommand updatePaymentCommand = UpdatePaymentCommand.builder()
                 .paymentId(event.getPaymentId())
@@ -72,19 +96,9 @@ public class OrderUpdatingSaga {
                 .paymentDetails(event.getPaymentDetails())
                 .build();
 
-        try {
-            commandGateway.sendAndWait(updatePaymentCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            //throw new Exception("Error is occurred during handle <UpdatedOrderEvent>");
-        } catch(Exception e) {
-            log.info(e.getMessage());
-            if(event.isCompensation()) {  //보상처리이면 Saga 종료(무한루프 방지)
-                log.info("===== [Update Order] Transaction is Aborted =====");
-                SagaLifecycle.end();
-                return;
-            }
-            log.info("===== [Update Order] Compensation <CancelUpdateOrderCommand> ==== ");
-            compensatingService.cancelUpdateOrder(aggregateIdMap);  //이전 주문 정보로 rollback 처리
-        }
+        sagaDeadlineService.schedule(PAYMENT_DEADLINE);
+        pendingDeadline = PAYMENT_DEADLINE;
+        compensatingService.dispatch(updatePaymentCommand, sagaDeadlineService.onFailure(PAYMENT_DEADLINE));
     }
 
     //-- 주문 수정 완료 처리 요청
@@ -97,28 +111,38 @@ public class OrderUpdatingSaga {
             log.info("This event is compensation. So, Do nothing.");
             return;
         }
+        settle(PAYMENT_DEADLINE);
+        if(isCompensating) {
+            log.info("===== [Update Order] Compensation late <UpdatedPaymentEvent> ==== ");
+            compensatingService.cancelUpdatePayment(aggregateIdMap);      //이전 결제 정보로 rollback처리 요청
+            endIfSettled();
+            return;
+        }
+        sagaMetricsService.step(timeline, "UpdatedPayment");
+
         CompleteUpdateOrderCommand cmd = CompleteUpdateOrderCommand.builder()
                 .orderId(event.getOrderId())
                 .orderStatus(OrderStatusEnum.COMPLETED.value())
                 .build();
 
-        try {
-            commandGateway.sendAndWait(cmd, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            //throw new RuntimeException("주문수정 보상처리 테스트");
-        } catch(Exception e) {
-            log.error(e.getMessage());
-            log.info("===== [Update Order] Compensation <CancelUpdatePaymentCommand> ==== ");
-            compensatingService.cancelUpdatePayment(aggregateIdMap);      //이전 결제 정보로 rollback처리 요청
-            log.info("===== [Update Order] Compensation <CancelUpdateOrderCommand> ==== ");
-            compensatingService.cancelUpdateOrder(aggregateIdMap);  //이전 주문 정보로 rollback 처리
-        }
+        sagaDeadlineService.schedule(COMPLETE_DEADLINE);
+        pendingDeadline = COMPLETE_DEADLINE;
+        compensatingService.dispatch(cmd, sagaDeadlineService.onFailure(COMPLETE_DEADLINE));
     }
 
     //-- 주문 수정 최종 완료 시
-    @EndSaga
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CompletedUpdateOrderEvent event) {
         log.info("[Saga] [CompletedUpdateOrderEvent] is finished for Order Id: {}", event.getOrderId());
+        settle(COMPLETE_DEADLINE);
+        //-- 제한시간 초과로 보상처리가 이미 진행 중이면 rollback 완료(CancelledUpdateOrderEvent)를 기다림
+        if(isCompensating) {
+            log.info("===== [Update Order] Completed after compensation is started. Wait for cancellation =====");
+            endIfSettled();
+            return;
+        }
+        SagaLifecycle.end();
+        sagaMetricsService.end(timeline, "CompletedUpdateOrder", SagaMetricsService.COMPLETED);
         log.info("===== [Updating Order] Transaction is Finished =====");
 
         //-- Report service에 주문, 결제, 배송 정보 업데이트: Report update처리를 CQRS패턴으로 변경하여 수행 안함
@@ -131,37 +155,93 @@ public class OrderUpdatingSaga {
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedUpdateOrderEvent event) {
         log.info("[Saga] FailedUpdateOrderEvent is received for Order Id: {}", event.getOrderId());
-        log.info("===== [Update Order] Compensation <CancelUpdateOrderCommand> ==== ");
-        compensatingService.cancelUpdateOrder(aggregateIdMap);  //이전 주문 정보로 rollback 처리
+        startCompensation(orderPlan());
     }
 
     //-- 결제 정보 수정 실패 시 보상 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedUpdatePaymentEvent event) {
         log.info("[Saga] FailedUpdatePaymentEvent is received for Order Id: {}", event.getOrderId());
-        log.info("===== [Update Order] Compensation <CancelUpdateOrderCommand> ==== ");
-        compensatingService.cancelUpdateOrder(aggregateIdMap);  //이전 주문 정보로 rollback 처리
+        settle(PAYMENT_DEADLINE);
+        startCompensation(orderPlan());
     }
 
     //-- 주문 수정 완료 처리 실패 시 보상 처리 요청
     @SagaEventHandler(associationProperty = "orderId")
     private void on(FailedCompleteUpdateOrderEvent event) {
         log.info("[Saga] FailedCompleteUpdateOrderEvent is received for Order Id: {}", event.getOrderId());
-
-        log.info("===== [Update Order] Compensation <CancelUpdatePaymentCommand> ==== ");
-        compensatingService.cancelUpdatePayment(aggregateIdMap);      //이전 결제 정보로 rollback처리 요청
-        log.info("===== [Update Order] Compensation <CancelUpdateOrderCommand> ==== ");
-        compensatingService.cancelUpdateOrder(aggregateIdMap);        // 이전 주문 정보로 rollback처리 요청
+        settle(COMPLETE_DEADLINE);
+        startCompensation(paymentAndOrderPlan());
     }
 
-    //-- 주문 수정 취소 완료 시
-    @EndSaga
+    //-- 주문 수정 취소 완료 시. 결과를 기다리는 단계가 있으면 그 결과를 받은 후 종료함
     @SagaEventHandler(associationProperty = "orderId")
     private void on(CancelledUpdateOrderEvent event) {
         log.info("[Saga] <CancelledUpdateOrderEvent> is finished for Order Id: {}", event.getOrderId());
         log.info("===== [Update Order] Transaction is Aborted =====");
+        isOrderCancelled = true;
+        sagaMetricsService.end(timeline, "CancelledUpdateOrder", SagaMetricsService.COMPENSATED);
 
         //-- Report service에 주문, 결제, 배송 정보 업데이트
         compensatingService.updateReport(event.getOrderId(), false);
+        endIfSettled();
+    }
+
+    //================= 단계별 제한시간 초과(또는 Command 발송 실패) 처리 =====================
+
+    @DeadlineHandler(deadlineName = PAYMENT_DEADLINE)
+    private void onPaymentDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", PAYMENT_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(PAYMENT_DEADLINE);
+        startCompensation(orderPlan());
+    }
+
+    @DeadlineHandler(deadlineName = COMPLETE_DEADLINE)
+    private void onCompleteDeadline() {
+        log.info("[Saga] <{}> is expired for Order Id: {}", COMPLETE_DEADLINE, aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+        settle(COMPLETE_DEADLINE);
+        startCompensation(paymentAndOrderPlan());
+    }
+
+    //-- 남은 deadline을 취소하고 보상처리 시작. 이미 시작했으면 Saga 종료 가능 여부만 확인함
+    //-- 결과를 기다리는 단계의 deadline은 남겨두어, 끝내 결과가 오지 않아도 Saga가 종료되게 함
+    private void startCompensation(CompensationPlan plan) {
+        if(isCompensating) {
+            log.info("Compensation is already started. So, Do nothing.");
+            endIfSettled();
+            return;
+        }
+        isCompensating = true;
+        sagaMetricsService.step(timeline, "Compensating");
+        for(String deadlineName : DEADLINES) {
+            if(!deadlineName.equals(pendingDeadline)) sagaDeadlineService.cancel(deadlineName);
+        }
+        compensatingService.execute(plan);
+    }
+
+    //-- 단계의 결과(수정, 실패, 제한시간 초과)를 받으면 해당 deadline을 취소하고 기다리는 단계에서 제외함
+    private void settle(String deadlineName) {
+        sagaDeadlineService.cancel(deadlineName);
+        if(deadlineName.equals(pendingDeadline)) pendingDeadline = null;
+    }
+
+    //-- 주문 수정이 취소되었고 결과를 기다리는 단계가 없으면 Saga 종료
+    private void endIfSettled() {
+        if(isOrderCancelled && pendingDeadline == null) {
+            SagaLifecycle.end();
+        }
+    }
+
+    //-- 주문을 이전 정보로 rollback
+    private CompensationPlan orderPlan() {
+        return CompensationPlan.of("Update Order", aggregateIdMap)
+                .then(compensatingService::cancelUpdateOrder);
+    }
+
+    //-- 결제를 이전 정보로 rollback한 후 주문을 이전 정보로 rollback
+    private CompensationPlan paymentAndOrderPlan() {
+        return CompensationPlan.of("Update Order", aggregateIdMap)
+                .then(compensatingService::cancelUpdatePayment)
+                .then(compensatingService::cancelUpdateOrder);
     }
 }
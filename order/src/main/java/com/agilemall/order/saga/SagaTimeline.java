@@ -0,0 +1,32 @@
+package com.agilemall.order.saga;
+/*
+- 목적: Saga의 시작 시각과 직전 단계를 Saga 상태에 보관하여 단계별/전체 소요시간을 측정함
+- 설명
+    - 시각은 Event 발생 시각(EventMessage timestamp)이므로 Saga processor 처리 지연과 무관하게 서비스 간 구간 시간을 나타냄
+    - SagaMetricsService에서만 변경함
+*/
+import lombok.Getter;
+
+@Getter
+public class SagaTimeline {
+    private String sagaType;
+    private String lastStep;
+    private long startedAt;
+    private long lastStepAt;
+
+    //-- Saga 상태 역직렬화용
+    SagaTimeline() {
+    }
+
+    public SagaTimeline(String sagaType, String step, long startedAt) {
+        this.sagaType = sagaType;
+        this.lastStep = step;
+        this.startedAt = startedAt;
+        this.lastStepAt = startedAt;
+    }
+
+    public void moveTo(String step, long stepAt) {
+        this.lastStep = step;
+        this.lastStepAt = stepAt;
+    }
+}
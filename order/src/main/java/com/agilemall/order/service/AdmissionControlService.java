@@ -0,0 +1,257 @@
+package com.agilemall.order.service;
+/*
+- 목적: 하위 서비스가 느려질 때 주문 신규/수정/취소 요청을 더 받지 않고 바로 거절(429 Too Many Requests)함
+- 설명
+    - 모든 요청이 30초 timeout까지 기다리다 실패하는 대신, 처리 한도를 넘으면 Retry-After header와 함께 바로 거절함
+    - 거절 조건 1: 진행 중인 Saga 수가 agilemall.admission.max-in-flight 이상
+      - Command 발송 전에 tryAcquire로 자리(Semaphore permit)를 예약하므로 동시 요청이 몰려도 한도를 넘지 않음
+      - 발송에 성공하면 예약한 자리를 진행 중 주문으로 등록하고, 실패하면 바로 반환함(settle)
+      - Saga 종료 Event(Completed*/Cancelled*OrderEvent)를 받으면 진행 중 주문에서 삭제하고 자리를 반환함
+        (*.events > AdmissionControlEventsHandler 참조)
+      - 발송 결과를 반영(settle)하기 전에 Saga가 먼저 종료될 수 있으므로(예: 빠른 FailedCreateOrderEvent),
+        종료 Event를 받았을 때 진행 중 주문이 없으면 RELEASED_EXPIRE_SECONDS 동안 종료 표시를 남기고, settle은 종료 표시가 있으면 바로 자리를 반환함
+      - 종료 Event를 받지 못한 주문은 IN_FLIGHT_EXPIRE_MINUTES 후 자동 삭제되며 자리도 반환됨
+    - 거절 조건 2: Tracking Event Processor(Event Handler, Saga)의 처리 지연(lag)이 agilemall.admission.max-lag 이상
+      - lag는 Event Store의 마지막 Event 위치와 각 Processor segment의 처리 위치 차이의 최대값이며, 1초마다 계산함
+      - Replay 중인 segment는 제외함
+    - 거절할 때마다 로그를 남기지 않고 거절 상태가 바뀔 때만 로그를 남김. 거절 건수는 metric으로 확인함
+      - agilemall.admission.rejected: 거절 건수. tag: reason(in-flight, lag)
+*/
+import com.agilemall.common.vo.ResultVO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.Configuration;
+import org.axonframework.eventhandling.EventProcessor;
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.StreamingEventProcessor;
+import org.axonframework.eventhandling.TrackingToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class AdmissionControlService {
+    //-- 진행 중 주문의 작업 구분
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private static final long LAG_CHECK_INTERVAL_SECONDS = 1;
+    private static final long IN_FLIGHT_EXPIRE_MINUTES = 5;
+    private static final long RELEASED_EXPIRE_SECONDS = 60;
+    private static final long MAX_RELEASED_KEYS = 10_000;
+
+    //-- 거절 사유(metric tag)
+    private static final String REASON_IN_FLIGHT = "in-flight";
+    private static final String REASON_LAG = "lag";
+
+    //-- 진행 중 주문 수의 한도. 예약(tryAcquire) 시 permit을 가져가고, 진행 중 주문이 삭제(종료, 만료)되면 반환함
+    private final Semaphore slots;
+    //-- key: '작업구분:주문ID', value: 등록 시각. 삭제될 때마다(교체 포함) 등록 시 가져간 permit을 반환함
+    private final Cache<String, Long> inFlight;
+    //-- key: '작업구분:주문ID'. settle 전에 Saga 종료 Event를 받은 주문의 종료 표시(permit과 무관함)
+    private final Cache<String, Boolean> released = CacheBuilder.newBuilder()
+            .maximumSize(MAX_RELEASED_KEYS)
+            .expireAfterWrite(RELEASED_EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .build();
+    //-- 현재 거절 사유. 처리 가능한 상태이면 null. 상태가 바뀔 때만 로그를 남기기 위해 사용함
+    private final AtomicReference<String> rejecting = new AtomicReference<>();
+    private final ScheduledExecutorService lagMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "admission-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long processorLag = 0;
+
+    private final Configuration configuration;
+    private final int maxInFlight;
+    private final long maxLag;
+    private final long retryAfterSeconds;
+    private final Counter inFlightRejections;
+    private final Counter lagRejections;
+    @Autowired
+    public AdmissionControlService(Configuration configuration, MeterRegistry meterRegistry,
+                                   @Value("${agilemall.admission.max-in-flight:500}") int maxInFlight,
+                                   @Value("${agilemall.admission.max-lag:1000}") long maxLag,
+                                   @Value("${agilemall.admission.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.configuration = configuration;
+        this.maxInFlight = maxInFlight;
+        this.slots = new Semaphore(maxInFlight);
+        this.inFlight = CacheBuilder.newBuilder()
+                .expireAfterWrite(IN_FLIGHT_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                .<String, Long>removalListener(notification -> slots.release())
+                .build();
+        this.maxLag = maxLag;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.inFlightRejections = rejectionCounter(meterRegistry, REASON_IN_FLIGHT);
+        this.lagRejections = rejectionCounter(meterRegistry, REASON_LAG);
+    }
+
+    @PostConstruct
+    public void start() {
+        lagMonitor.scheduleWithFixedDelay(this::checkProcessorLag,
+                LAG_CHECK_INTERVAL_SECONDS, LAG_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lagMonitor.shutdownNow();
+    }
+
+    //-- 처리 가능하면 Optional.empty(), 한도를 넘었으면 거절 사유를 리턴. 자리를 예약하지 않음(일괄 주문의 사전 검사용)
+    public Optional<String> checkAdmission() {
+        Optional<String> delayed = rejectIfDelayed(processorLag);
+        if (delayed.isPresent()) return delayed;
+        if (slots.availablePermits() <= 0) return Optional.of(tooManyInFlight());
+        accept();
+        return Optional.empty();
+    }
+
+    //-- 처리 가능하면 자리를 예약하고 Optional.empty()를 리턴. 예약한 자리는 반드시 settle 또는 cancelAcquired로 정리해야 함
+    public Optional<String> tryAcquire() {
+        Optional<String> delayed = rejectIfDelayed(processorLag);
+        if (delayed.isPresent()) return delayed;
+        if (!slots.tryAcquire()) return Optional.of(tooManyInFlight());
+        accept();
+        return Optional.empty();
+    }
+
+    //-- 예약한 자리로 action을 수행하고 결과에 따라 진행 중으로 등록하거나 자리를 반환함
+    public <T> ResultVO<T> runAcquired(String operation, Supplier<ResultVO<T>> action, Function<ResultVO<T>, String> orderIdOf) {
+        ResultVO<T> retVo;
+        try {
+            retVo = action.get();
+        } catch (RuntimeException e) {
+            cancelAcquired();
+            throw e;
+        }
+        settle(operation, retVo, orderIdOf);
+        return retVo;
+    }
+
+    //-- 예약한 자리의 처리 결과 반영. 성공하면 주문을 진행 중으로 등록하고, 실패하면 자리를 반환함
+    public <T> void settle(String operation, ResultVO<T> retVo, Function<ResultVO<T>, String> orderIdOf) {
+        if (!retVo.isReturnCode()) {
+            cancelAcquired();
+            return;
+        }
+
+        String key = operation + ":" + orderIdOf.apply(retVo);
+        //-- Saga가 이미 종료되었으면 등록하지 않고 자리를 반환함
+        if (released.asMap().remove(key) != null) {
+            cancelAcquired();
+            return;
+        }
+        inFlight.put(key, System.currentTimeMillis());
+        //-- 등록하는 사이에 종료 표시가 남았으면 등록을 취소함(삭제 시 removalListener가 자리를 반환함)
+        if (released.asMap().remove(key) != null) inFlight.invalidate(key);
+    }
+
+    //-- Command를 발송하지 않았거나 발송에 실패하여 예약한 자리를 반환
+    public void cancelAcquired() {
+        slots.release();
+    }
+
+    //-- 429 응답 생성
+    public <T> ResponseEntity<ResultVO<T>> rejectResponse(String reason) {
+        ResultVO<T> retVo = new ResultVO<>();
+        retVo.setReturnCode(false);
+        retVo.setReturnMessage(reason);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(retVo);
+    }
+
+    //-- Saga가 종료된 주문을 진행 중 목록에서 삭제. 아직 등록(settle) 전이면 종료 표시를 남김
+    public void release(String operation, String orderId) {
+        String key = operation + ":" + orderId;
+        if (inFlight.asMap().remove(key) != null) return;
+
+        released.put(key, Boolean.TRUE);
+        //-- 종료 표시를 남기는 사이에 등록되었으면 여기서 삭제함. 삭제는 한 쪽에서만 성공하므로 자리는 한번만 반환됨
+        if (inFlight.asMap().remove(key) != null) released.invalidate(key);
+    }
+
+    //-- 예약 후 발송 중인 요청을 포함한 진행 중 주문 수
+    public long getInFlightCount() {
+        return maxInFlight - slots.availablePermits();
+    }
+
+    public long getProcessorLag() {
+        return processorLag;
+    }
+
+    private Optional<String> rejectIfDelayed(long lag) {
+        if (lag < maxLag) return Optional.empty();
+        lagRejections.increment();
+        if (!REASON_LAG.equals(rejecting.getAndSet(REASON_LAG))) {
+            log.warn("[AdmissionControlService] Start rejecting: event processors are {} events behind", lag);
+        }
+        return Optional.of("Order processing is delayed(" + lag + " events behind). Retry after " + retryAfterSeconds + " seconds");
+    }
+
+    private String tooManyInFlight() {
+        long inFlightCount = getInFlightCount();
+        inFlightRejections.increment();
+        if (!REASON_IN_FLIGHT.equals(rejecting.getAndSet(REASON_IN_FLIGHT))) {
+            log.warn("[AdmissionControlService] Start rejecting: {} orders are in progress", inFlightCount);
+        }
+        return "Too many orders in progress(" + inFlightCount + "). Retry after " + retryAfterSeconds + " seconds";
+    }
+
+    //-- 거절하던 상태에서 다시 처리 가능해지면 로그를 남김
+    private void accept() {
+        String prevReason = rejecting.getAndSet(null);
+        if (prevReason != null) {
+            log.info("[AdmissionControlService] Accepting orders again(rejected by {})", prevReason);
+        }
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("agilemall.admission.rejected")
+                .description("Number of order requests rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private void checkProcessorLag() {
+        try {
+            inFlight.cleanUp();
+
+            TrackingToken headToken = configuration.eventStore().createHeadToken();
+            if (headToken == null) return;
+            long headPosition = headToken.position().orElse(0);
+
+            long lag = 0;
+            for (EventProcessor processor : configuration.eventProcessingConfiguration().eventProcessors().values()) {
+                if (!(processor instanceof StreamingEventProcessor)) continue;
+                for (EventTrackerStatus status : ((StreamingEventProcessor) processor).processingStatus().values()) {
+                    if (status.isReplaying()) continue;
+                    long position = status.getCurrentPosition().orElse(headPosition);
+                    lag = Math.max(lag, headPosition - position);
+                }
+            }
+            processorLag = lag;
+        } catch (Exception e) {
+            log.warn("[AdmissionControlService] Fail to check event processor lag: {}", e.getMessage());
+        }
+    }
+}
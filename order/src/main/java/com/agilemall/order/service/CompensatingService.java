@@ -4,6 +4,9 @@ package com.agilemall.order.service;
 - 설명:
     - 보상 처리를 요청하는 Command객체를 생성하여 발송함
     - Command Handler가 있는 서비스의 Aggregate에서 요청을 처리함
+    - Saga thread가 원격 서비스 응답을 기다리지 않도록 모든 Command는 비동기로 발송하고 CompletableFuture를 리턴함
+    - 보상 처리 Future는 실패해도 예외로 완료되지 않고 에러 로그만 남김
+    - 여러 보상 처리는 CompensationPlan으로 정의하여 서로 의존하지 않는 보상 처리는 동시에 수행함
 */
 import com.agilemall.common.command.create.CancelCreateDeliveryCommand;
 import com.agilemall.common.command.create.CancelCreateOrderCommand;
@@ -18,20 +21,27 @@ import com.agilemall.common.dto.DeliveryDTO;
 import com.agilemall.common.dto.OrderDTO;
 import com.agilemall.common.dto.PaymentDTO;
 import com.agilemall.common.dto.ServiceNameEnum;
+import com.agilemall.common.id.IdGenerator;
+import com.agilemall.common.queries.ApiComposer;
 import com.agilemall.common.queries.GetReportId;
 import com.agilemall.common.queries.Queries;
+import com.agilemall.common.vo.ComposedResultVO;
 import com.agilemall.order.command.CancelDeleteOrderCommand;
 import com.agilemall.order.command.CancelUpdateOrderCommand;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.axonframework.commandhandling.gateway.CommandGateway;
-import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -44,184 +54,232 @@ public class CompensatingService {
         this.queryGateway = queryGateway;
     }
 
-    //==================== 주문 생성 보상 처리 ====================
-    public void cancelCreateOrder(HashMap<String, String> aggregateIdMap) {
-        log.info("[CompensatingService] Executing <cancelCreateOrder> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+    //==================== Saga 단계 Command 비동기 발송 ====================
+    /*
+    - 목적: Saga 단계의 Command를 비동기로 발송하고, 실패 시 callback에서 실패 처리(compensation)를 수행함
+    - 설명
+        - Saga Event Handler는 결과를 기다리지 않으므로 느린 서비스가 Saga processor thread를 점유하지 않음
+        - 발송 실패, Command Handler 에러, timeout(Constants.GATEWAY_TIMEOUT) 모두 보상 처리 대상임
+        - callback은 Saga thread 밖에서 수행되므로 Saga 상태를 바꿀 수 없음.
+          Saga는 SagaDeadlineService.onFailure로 해당 단계의 deadline을 즉시 만료시켜 Saga 안에서 보상 처리를 시작함
+    */
+    public CompletableFuture<Void> dispatch(Object command, Supplier<CompletableFuture<Void>> compensation) {
+        String commandName = command.getClass().getSimpleName();
+        return commandGateway.send(command)
+                .orTimeout(Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS)
+                .handle((result, error) -> error)
+                .thenCompose(error -> {
+                    if (error == null) return CompletableFuture.<Void>completedFuture(null);
+                    log.error("Error is occurred during handle <{}>: {}", commandName, rootMessage(error));
+                    return compensation.get();
+                });
+    }
+
+    //==================== 보상 처리 계획 수행 ====================
+    /*
+    - 목적: CompensationPlan의 단계를 순서대로 수행. 같은 단계의 보상 처리는 동시에 요청함
+    - 설명
+        - 전체 보상 시간은 단계별로 가장 느린 보상 처리 시간의 합이 됨. 예) 배송/결제 동시 취소 후 주문 취소: 2 hop
+        - 보상 처리가 실패해도 로그만 남기고 다음 단계를 진행함
+    */
+    public CompletableFuture<Void> execute(CompensationPlan plan) {
+        String orderId = plan.getAggregateIdMap().get(ServiceNameEnum.ORDER.value());
+        int stageCount = plan.getStages().size();
+
+        CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < stageCount; i++) {
+            int stageNo = i + 1;
+            List<Function<HashMap<String, String>, CompletableFuture<Void>>> stage = plan.getStages().get(i);
+            future = future.thenCompose(v -> {
+                log.info("===== [{}] Compensation stage {}/{} for Order Id: {} =====", plan.getName(), stageNo, stageCount, orderId);
+                return CompletableFuture.allOf(stage.stream()
+                        .map(step -> runStep(step, plan.getAggregateIdMap()))
+                        .toArray(CompletableFuture[]::new));
+            });
+        }
+        return future;
+    }
 
+    private CompletableFuture<Void> runStep(Function<HashMap<String, String>, CompletableFuture<Void>> step,
+                                            HashMap<String, String> aggregateIdMap) {
         try {
-            CancelCreateOrderCommand cancelCreateOrderCommand = CancelCreateOrderCommand.builder()
-                    .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value())).build();
-            commandGateway.sendAndWait(cancelCreateOrderCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
+            return step.apply(aggregateIdMap);
         } catch(Exception e) {
-            log.error("Error is occurred during <cancelCreateOrder>: {}", e.getMessage());
+            log.error("Error is occurred during compensation: {}", e.getMessage());
+            return CompletableFuture.completedFuture(null);
         }
     }
 
-    public void cancelCreatePayment(HashMap<String, String> aggregateIdMap) {
-        log.info("[CompensatingService] Executing <cancelCreatePayment> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+    //==================== 주문 생성 보상 처리 ====================
+    public CompletableFuture<Void> cancelCreateOrder(HashMap<String, String> aggregateIdMap) {
+        log.info("[CompensatingService] Executing <cancelCreateOrder> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
 
-        try {
-            //do compensating transaction: Payment
-            CancelCreatePaymentCommand cancelCreatePaymentCommand = CancelCreatePaymentCommand.builder()
-                    .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
-                    .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
-                    .build();
-            commandGateway.sendAndWait(cancelCreatePaymentCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
+        CancelCreateOrderCommand cancelCreateOrderCommand = CancelCreateOrderCommand.builder()
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value())).build();
+        return send(cancelCreateOrderCommand, "cancelCreateOrder");
+    }
 
-        } catch (Exception e) {
-            log.error("Error is occurred during <cancelCreatePayment>: {}", e.getMessage());
-        }
+    public CompletableFuture<Void> cancelCreatePayment(HashMap<String, String> aggregateIdMap) {
+        log.info("[CompensatingService] Executing <cancelCreatePayment> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
+
+        //do compensating transaction: Payment
+        CancelCreatePaymentCommand cancelCreatePaymentCommand = CancelCreatePaymentCommand.builder()
+                .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
+                .build();
+        return send(cancelCreatePaymentCommand, "cancelCreatePayment");
     }
 
-    public void cancelCreateDelivery(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelCreateDelivery(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelCreateDelivery> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
-        try {
-            //compensating transaction: Delivery
-            CancelCreateDeliveryCommand cancelCreateDeliveryCommand = CancelCreateDeliveryCommand.builder()
-                    .deliveryId(aggregateIdMap.get(ServiceNameEnum.DELIVERY.value()))
-                    .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
-                    .build();
-            commandGateway.sendAndWait(cancelCreateDeliveryCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.error("Error is occurred during <cancelCreateDelivery>: {}", e.getMessage());
-        }
+
+        //compensating transaction: Delivery
+        CancelCreateDeliveryCommand cancelCreateDeliveryCommand = CancelCreateDeliveryCommand.builder()
+                .deliveryId(aggregateIdMap.get(ServiceNameEnum.DELIVERY.value()))
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
+                .build();
+        return send(cancelCreateDeliveryCommand, "cancelCreateDelivery");
     }
 
     //==================== 주문 수정 보상 처리 ====================
-    public void cancelUpdateOrder(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelUpdateOrder(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelUpdateOrder> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
-        try {
-            commandGateway.sendAndWait(CancelUpdateOrderCommand.builder()
-                    .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value())).isCompensation(true)
-                    .build(), Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
 
-        } catch(Exception e) {
-            log.error("Error is occurred during <cancelUpdateOrder>: {}", e.getMessage());
-        }
+        return send(CancelUpdateOrderCommand.builder()
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value())).isCompensation(true)
+                .build(), "cancelUpdateOrder");
     }
 
-    public void cancelUpdatePayment(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelUpdatePayment(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelUpdatePayment> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
-        try {
-            commandGateway.sendAndWait(CancelUpdatePaymentCommand.builder()
-                    .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
-                    .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
-                    .isCompensation(true)
-                    .build(), Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
 
-        } catch(Exception e) {
-            log.error("Error is occurred during <cancelUpdatePayment>: {}", e.getMessage());
-        }
+        return send(CancelUpdatePaymentCommand.builder()
+                .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
+                .isCompensation(true)
+                .build(), "cancelUpdatePayment");
     }
 
     //==================== 주문 삭제 보상 처리 ====================
-    public void cancelDeleteOrder(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelDeleteOrder(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelDeleteOrder> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
 
-        try {
-            commandGateway.sendAndWait(CancelDeleteOrderCommand.builder()
-                    .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
-                    .isCompensation(true).build(),
-                    Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-
-        } catch(Exception e) {
-            log.error(e.getMessage());
-        }
+        return send(CancelDeleteOrderCommand.builder()
+                .orderId(aggregateIdMap.get(ServiceNameEnum.ORDER.value()))
+                .isCompensation(true).build(), "cancelDeleteOrder");
     }
 
-    public void cancelDeletePayment(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelDeletePayment(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelDeletePayment> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
 
-        try {
-            commandGateway.sendAndWait(CancelDeletePaymentCommand.builder()
-                    .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
-                    .isCompensation(true)
-                    .build(), Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-        } catch(Exception e) {
-            log.error(e.getMessage());
-        }
+        return send(CancelDeletePaymentCommand.builder()
+                .paymentId(aggregateIdMap.get(ServiceNameEnum.PAYMENT.value()))
+                .isCompensation(true)
+                .build(), "cancelDeletePayment");
     }
 
-    public void cancelDeleteDelivery(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelDeleteDelivery(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelDeleteDelivery> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
 
-        try {
-            commandGateway.sendAndWait(CancelDeleteDeliveryCommand.builder()
-                    .deleveryId(aggregateIdMap.get(ServiceNameEnum.DELIVERY.value()))
-                    .isCompensation(true)
-                    .build(), Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-
-        } catch(Exception e) {
-            log.error(e.getMessage());
-        }
+        return send(CancelDeleteDeliveryCommand.builder()
+                .deleveryId(aggregateIdMap.get(ServiceNameEnum.DELIVERY.value()))
+                .isCompensation(true)
+                .build(), "cancelDeleteDelivery");
     }
 
-    public void cancelDeleteReport(HashMap<String, String> aggregateIdMap) {
+    public CompletableFuture<Void> cancelDeleteReport(HashMap<String, String> aggregateIdMap) {
         log.info("[CompensatingService] Executing <cancelDeleteReport> for Order Id: {}", aggregateIdMap.get(ServiceNameEnum.ORDER.value()));
 
-        updateReport(aggregateIdMap.get(ServiceNameEnum.ORDER.value()), true);
+        return updateReport(aggregateIdMap.get(ServiceNameEnum.ORDER.value()), true);
+    }
+
+    //-- 보상 처리 Command 발송. 실패해도 다음 보상 처리가 진행되도록 에러 로그만 남김
+    private CompletableFuture<Void> send(Object command, String methodName) {
+        return commandGateway.send(command)
+                .orTimeout(Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS)
+                .handle((result, error) -> {
+                    if (error != null) {
+                        log.error("Error is occurred during <{}>: {}", methodName, rootMessage(error));
+                    }
+                    return null;
+                });
+    }
+
+    private String rootMessage(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return (cause instanceof TimeoutException) ? "Timeout" : cause.getMessage();
     }
 
     //==================== 주문, 결제, 배송 레포트 생성/수정 ===========
-    public void updateReport(String orderId, boolean isCreate) {
+    public CompletableFuture<Void> updateReport(String orderId, boolean isCreate) {
         log.info("===== START {} Report =====", isCreate?"Create":"Update");
 
-        try {
-            OrderDTO order = queryGateway.query(Queries.ORDER_BY_ORDER_ID, orderId,
-                    ResponseTypes.instanceOf(OrderDTO.class)).join();
-            PaymentDTO payment = queryGateway.query(Queries.PAYMENT_BY_ORDER_ID, orderId,
-                    ResponseTypes.instanceOf(PaymentDTO.class)).join();
-            DeliveryDTO delivery = queryGateway.query(Queries.DELIVERY_BY_ORDER_ID, orderId,
-                    ResponseTypes.instanceOf(DeliveryDTO.class)).join();
-
-            if(isCreate) {
-                CreateReportCommand cmd = CreateReportCommand.builder()
-                        .reportId(RandomStringUtils.random(15, false, true))
-                        .orderId(order.getOrderId())
-                        .userId(order.getUserId())
-                        .orderDatetime(order.getOrderDatetime())
-                        .totalOrderAmt(order.getTotalOrderAmt())
-                        .orderStatus(order.getOrderStatus())
-                        .orderDetails(order.getOrderDetails())
-                        .paymentId(payment.getPaymentId())
-                        .totalPaymentAmt(payment.getTotalPaymentAmt())
-                        .paymentStatus(payment.getPaymentStatus())
-                        .paymentDetails(payment.getPaymentDetails())
-                        .deliveryId(delivery.getDeliveryId())
-                        .deliveryStatus(delivery.getDeliveryStatus())
-                        .build();
-                //commandGateway.sendAndWait(cmd, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-                commandGateway.send(cmd);
-            } else {
-                String reportId = queryGateway.query(new GetReportId(orderId),
-                        ResponseTypes.instanceOf(String.class)).join();
-                if("".equals(reportId)) {
-                    log.info("Can't get Report Id for Order Id: {}", orderId);
-                    return;
-                }
-                UpdateReportCommand cmd = UpdateReportCommand.builder()
-                        .reportId(reportId)
-                        .orderId(order.getOrderId())
-                        .userId(order.getUserId())
-                        .orderDatetime(order.getOrderDatetime())
-                        .totalOrderAmt(order.getTotalOrderAmt())
-                        .orderStatus(order.getOrderStatus())
-                        .orderDetails(order.getOrderDetails())
-                        .paymentId(payment.getPaymentId())
-                        .totalPaymentAmt(payment.getTotalPaymentAmt())
-                        .paymentStatus(payment.getPaymentStatus())
-                        .paymentDetails(payment.getPaymentDetails())
-                        .deliveryId(delivery.getDeliveryId())
-                        .deliveryStatus(delivery.getDeliveryStatus())
-                        .build();
-                commandGateway.sendAndWait(cmd, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            }
+        //-- 주문, 결제, 배송 정보(수정 시에는 레포트ID 포함)를 동시에 요청함
+        ApiComposer composer = new ApiComposer(queryGateway)
+                .add(Queries.ORDER_BY_ORDER_ID, orderId, OrderDTO.class)
+                .add(Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class)
+                .add(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class);
+        if(!isCreate) {
+            composer.add(GetReportId.class.getName(), new GetReportId(orderId), String.class);
+        }
+        return composer.execute()
+                .thenCompose(composed -> sendReportCommand(orderId, isCreate, composed))
+                .exceptionally(e -> {
+                    log.info(rootMessage(e));
+                    return null;
+                })
+                .thenRun(() -> log.info("===== END {} Report =====", isCreate?"Create":"Update"));
+    }
 
-        }  catch(Exception e) {
-            log.info(e.getMessage());
+    private CompletableFuture<Void> sendReportCommand(String orderId, boolean isCreate, ComposedResultVO composed) {
+        if(!composed.isComplete()) {
+            log.info("Can't {} Report for Order Id: {} => {}", isCreate?"create":"update", orderId, composed.getFailureMessage());
+            return CompletableFuture.completedFuture(null);
         }
+        OrderDTO order = composed.get(Queries.ORDER_BY_ORDER_ID, OrderDTO.class);
+        PaymentDTO payment = composed.get(Queries.PAYMENT_BY_ORDER_ID, PaymentDTO.class);
+        DeliveryDTO delivery = composed.get(Queries.DELIVERY_BY_ORDER_ID, DeliveryDTO.class);
 
-        log.info("===== END {} Report =====", isCreate?"Create":"Update");
+        if(isCreate) {
+            CreateReportCommand cmd = CreateReportCommand.builder()
+                    .reportId(IdGenerator.REPORT.nextId())
+                    .orderId(order.getOrderId())
+                    .userId(order.getUserId())
+                    .orderDatetime(order.getOrderDatetime())
+                    .totalOrderAmt(order.getTotalOrderAmt())
+                    .orderStatus(order.getOrderStatus())
+                    .orderDetails(order.getOrderDetails())
+                    .paymentId(payment.getPaymentId())
+                    .totalPaymentAmt(payment.getTotalPaymentAmt())
+                    .paymentStatus(payment.getPaymentStatus())
+                    .paymentDetails(payment.getPaymentDetails())
+                    .deliveryId(delivery.getDeliveryId())
+                    .deliveryStatus(delivery.getDeliveryStatus())
+                    .build();
+            return send(cmd, "createReport");
+        } else {
+            String reportId = composed.get(GetReportId.class.getName(), String.class);
+            if("".equals(reportId)) {
+                log.info("Can't get Report Id for Order Id: {}", orderId);
+                return CompletableFuture.completedFuture(null);
+            }
+            UpdateReportCommand cmd = UpdateReportCommand.builder()
+                    .reportId(reportId)
+                    .orderId(order.getOrderId())
+                    .userId(order.getUserId())
+                    .orderDatetime(order.getOrderDatetime())
+                    .totalOrderAmt(order.getTotalOrderAmt())
+                    .orderStatus(order.getOrderStatus())
+                    .orderDetails(order.getOrderDetails())
+                    .paymentId(payment.getPaymentId())
+                    .totalPaymentAmt(payment.getTotalPaymentAmt())
+                    .paymentStatus(payment.getPaymentStatus())
+                    .paymentDetails(payment.getPaymentDetails())
+                    .deliveryId(delivery.getDeliveryId())
+                    .deliveryStatus(delivery.getDeliveryStatus())
+                    .build();
+            return send(cmd, "updateReport");
+        }
     }
 
 }
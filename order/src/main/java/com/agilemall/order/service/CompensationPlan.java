@@ -0,0 +1,49 @@
+package com.agilemall.order.service;
+/*
+- 목적: 보상 처리 순서를 단계(stage)로 정의하여 CompensatingService.execute로 수행
+- 설명
+    - 같은 단계의 보상 처리는 서로 의존하지 않으므로 동시에 요청하고, 모두 끝나면 다음 단계를 요청함
+    - 생성 시점의 aggregateIdMap 복사본을 사용하므로 Saga thread 밖에서 수행되어도 안전함
+    - 사용 예: 배송 취소와 결제 취소를 동시에 요청하고, 둘 다 끝나면 주문 취소 요청
+    CompensationPlan plan = CompensationPlan.of("Create Order", aggregateIdMap)
+            .concurrently(compensatingService::cancelCreateDelivery, compensatingService::cancelCreatePayment)
+            .then(compensatingService::cancelCreateOrder);
+    compensatingService.execute(plan);
+*/
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+@Getter
+public class CompensationPlan {
+    private final String name;
+    private final HashMap<String, String> aggregateIdMap;
+    private final List<List<Function<HashMap<String, String>, CompletableFuture<Void>>>> stages = new ArrayList<>();
+
+    private CompensationPlan(String name, HashMap<String, String> aggregateIdMap) {
+        this.name = name;
+        this.aggregateIdMap = aggregateIdMap;
+    }
+
+    public static CompensationPlan of(String name, HashMap<String, String> aggregateIdMap) {
+        return new CompensationPlan(name, new HashMap<>(aggregateIdMap));
+    }
+
+    //-- 서로 의존하지 않는 보상 처리를 하나의 단계로 추가
+    @SafeVarargs
+    public final CompensationPlan concurrently(Function<HashMap<String, String>, CompletableFuture<Void>>... steps) {
+        stages.add(Arrays.asList(steps));
+        return this;
+    }
+
+    //-- 앞 단계가 모두 끝난 후 수행할 보상 처리를 추가
+    public CompensationPlan then(Function<HashMap<String, String>, CompletableFuture<Void>> step) {
+        return concurrently(step);
+    }
+}
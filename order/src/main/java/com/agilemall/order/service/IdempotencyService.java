@@ -0,0 +1,126 @@
+package com.agilemall.order.service;
+/*
+- 목적: 동일한 Idempotency-Key로 재요청된 주문 Command를 다시 수행하지 않고 최초 처리 결과를 리턴
+- 설명
+    - 처리 결과를 최대 건수와 보관 시간이 제한된 메모리 저장소에 보관함
+    - 최초 요청이 처리 중일 때 들어온 동일 Key의 요청은 최초 요청의 처리 결과를 기다려 같은 결과를 리턴함
+      - 최대 Constants.GATEWAY_TIMEOUT초까지 기다리며, timeout 또는 최초 요청에서 Exception이 발생하면 실패 결과를 리턴함
+    - 성공한 결과만 보관함. 실패(timeout, 재고 부족 등)하거나 Exception이 발생하면 Key를 삭제하여 재요청 시 다시 수행되게 함
+    - 요청 내용의 hash를 같이 보관하여, 같은 Key로 다른 내용의 요청이 오면 이전 결과를 리턴하지 않고 거절함(422)
+*/
+import com.agilemall.common.config.Constants;
+import com.agilemall.common.vo.ResultVO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class IdempotencyService {
+    public static final String KEY_REUSED_MESSAGE = "Idempotency-Key is already used for a different request";
+
+    private static final long MAX_KEYS = 100_000;
+    private static final long EXPIRE_HOURS = 24;
+
+    private final Cache<String, Entry> results = CacheBuilder.newBuilder()
+            .maximumSize(MAX_KEYS)
+            .expireAfterWrite(EXPIRE_HOURS, TimeUnit.HOURS)
+            .build();
+
+    //-- 같은 Key로 다른 내용의 요청이 처리되었거나 처리 중인지 확인
+    public boolean isReusedForOtherRequest(String scope, String idempotencyKey, Object request) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) return false;
+
+        Entry entry = results.getIfPresent(scope + ":" + idempotencyKey);
+        return entry != null && !entry.requestHash.equals(hash(request));
+    }
+
+    //-- 같은 Key, 같은 내용으로 처리된 결과. 처리 중이면 완료를 기다림
+    public <T> Optional<ResultVO<T>> findResult(String scope, String idempotencyKey, Object request) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) return Optional.empty();
+
+        Entry entry = results.getIfPresent(scope + ":" + idempotencyKey);
+        if (entry == null || !entry.requestHash.equals(hash(request))) return Optional.empty();
+        log.info("[IdempotencyService] Duplicated request for Idempotency-Key: {}:{}", scope, idempotencyKey);
+        return Optional.of(await(entry));
+    }
+
+    //-- idempotencyKey가 없으면 매번 수행함. scope는 API별로 Key를 구별하기 위해 사용함
+    public <T> ResultVO<T> execute(String scope, String idempotencyKey, Object request, Supplier<ResultVO<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) return action.get();
+
+        String key = scope + ":" + idempotencyKey;
+        Entry newEntry = new Entry(hash(request), new CompletableFuture<>());
+        Entry prevEntry = results.asMap().putIfAbsent(key, newEntry);
+        if (prevEntry != null) {
+            //-- 다른 요청의 결과는 리턴하지 않음
+            if (!prevEntry.requestHash.equals(newEntry.requestHash)) {
+                ResultVO<T> retVo = new ResultVO<>();
+                retVo.setReturnCode(false);
+                retVo.setReturnMessage(KEY_REUSED_MESSAGE);
+                return retVo;
+            }
+            log.info("[IdempotencyService] Duplicated request for Idempotency-Key: {}", key);
+            return await(prevEntry);
+        }
+
+        try {
+            ResultVO<T> retVo = action.get();
+            if (!retVo.isReturnCode()) results.invalidate(key);
+            newEntry.result.complete(retVo);
+            return retVo;
+        } catch (RuntimeException e) {
+            results.invalidate(key);
+            newEntry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    //-- 처리 중인 최초 요청의 결과를 기다림. 다른 요청도 같은 결과를 기다리므로 원본이 아닌 복사본에 timeout을 지정함
+    @SuppressWarnings("unchecked")
+    private static <T> ResultVO<T> await(Entry entry) {
+        try {
+            return (ResultVO<T>) entry.result.copy().orTimeout(Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS).join();
+        } catch (CompletionException e) {
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            ResultVO<T> retVo = new ResultVO<>();
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage((cause instanceof TimeoutException)
+                    ? "Timeout waiting for the previous request with the same Idempotency-Key"
+                    : cause.getMessage());
+            return retVo;
+        }
+    }
+
+    //-- 요청 DTO는 모든 필드를 toString으로 출력하므로(Lombok @Data) 그 결과로 hash를 계산함
+    private static String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(String.valueOf(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final String requestHash;
+        private final CompletableFuture<ResultVO<?>> result;
+
+        private Entry(String requestHash, CompletableFuture<ResultVO<?>> result) {
+            this.requestHash = requestHash;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.agilemall.order.service;
+/*
+- 목적: 주문 검증과 금액 계산에 필요한 제품 정보(단가, 재고량)의 로컬 복제본을 관리
+- 설명
+    - Inventory service가 발행하는 CreatedInventoryEvent, UpdatedInventoryQtyEvent로 복제본을 갱신함
+      (*.events > InventoryReplicaEventsHandler 참조)
+    - 메모리에 보관하는 제품 수와 보관 시간을 제한함
+    - 복제본에 없는 제품은 Inventory service에 한번의 Query로 요청하여 복제본에 추가함
+    - getInventoriesAsync는 Query 응답을 기다리지 않고 CompletableFuture를 리턴함 (Reactive API에서 사용)
+*/
+import com.agilemall.common.dto.InventoryDTO;
+import com.agilemall.common.queries.GetInventoriesByProductIdsQuery;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class InventoryReplicaService {
+    private static final long MAX_PRODUCTS = 10_000;
+    private static final long EXPIRE_MINUTES = 10;
+
+    private final Cache<String, InventoryDTO> replica = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PRODUCTS)
+            .expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    private transient final QueryGateway queryGateway;
+    @Autowired
+    public InventoryReplicaService(QueryGateway queryGateway) {
+        this.queryGateway = queryGateway;
+    }
+
+    //-- 제품ID에 해당하는 제품 정보를 리턴. 등록되지 않은 제품은 결과에 포함되지 않음
+    public Map<String, InventoryDTO> getInventories(List<String> productIds) {
+        return getInventoriesAsync(productIds).join();
+    }
+
+    public CompletableFuture<Map<String, InventoryDTO>> getInventoriesAsync(List<String> productIds) {
+        Map<String, InventoryDTO> inventoryMap = new HashMap<>(replica.getAllPresent(productIds));
+
+        List<String> missingIds = productIds.stream()
+                .filter(productId -> !inventoryMap.containsKey(productId))
+                .distinct()
+                .collect(Collectors.toList());
+        if (missingIds.isEmpty()) return CompletableFuture.completedFuture(inventoryMap);
+
+        log.info("[InventoryReplicaService] Query inventory for missing Product Ids: {}", missingIds);
+        return queryGateway.query(new GetInventoriesByProductIdsQuery(missingIds),
+                        ResponseTypes.multipleInstancesOf(InventoryDTO.class))
+                .thenApply(inventories -> {
+                    for (InventoryDTO inventory : inventories) {
+                        replica.put(inventory.getProductId(), inventory);
+                        inventoryMap.put(inventory.getProductId(), inventory);
+                    }
+                    return inventoryMap;
+                });
+    }
+
+    public void put(InventoryDTO inventory) {
+        replica.put(inventory.getProductId(), inventory);
+    }
+
+    //-- 재고량만 갱신. 복제본에 없는 제품은 다음 조회 시 Query로 가져오므로 무시함
+    public void updateInventoryQty(String productId, int inventoryQty) {
+        InventoryDTO inventory = replica.getIfPresent(productId);
+        if (inventory == null) return;
+        replica.put(productId, new InventoryDTO(productId, inventory.getProductName(), inventory.getUnitPrice(), inventoryQty));
+    }
+}
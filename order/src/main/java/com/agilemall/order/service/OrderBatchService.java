@@ -0,0 +1,177 @@
+package com.agilemall.order.service;
+/*
+- 목적: 여러 건의 신규 주문을 한번에 처리
+- 설명
+    - 모든 주문의 제품ID를 중복 제거 후 한번에 조회하여 각 주문의 재고/금액 검사에 이용함
+      - 검사를 통과한 주문의 수량은 조회한 재고에서 차감하여, 같은 batch의 다음 주문이 같은 재고로 다시 주문되지 않게 함
+    - 주문생성 Command는 동시에 발송하되 처리 중인 Command 수를 MAX_IN_FLIGHT개로 제한함
+    - 주문마다 AdmissionControlService의 자리를 예약한 후 발송함. 진행 중 주문이 한도를 넘으면 그 주문은 실패로 응답함
+    - 동시에 처리하는 batch는 MAX_BATCHES개이며, 대기 중인 batch가 MAX_QUEUED_BATCHES개를 넘으면 바로 실패로 응답함
+    - 각 주문의 처리 결과는 완료되는 순서대로 onResult로 전달하고, 모든 주문이 끝나면 onComplete를 호출함
+      - 처리 중 오류가 발생해도 오류 결과를 전달한 후 onComplete를 호출하여 응답이 끝나지 않는 일이 없게 함
+*/
+import com.agilemall.common.config.Constants;
+import com.agilemall.common.dto.InventoryDTO;
+import com.agilemall.common.dto.OrderDetailDTO;
+import com.agilemall.common.vo.ResultVO;
+import com.agilemall.order.command.CreateOrderCommand;
+import com.agilemall.order.dto.OrderReqCreateDTO;
+import com.agilemall.order.dto.OrderReqDetailDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class OrderBatchService {
+    private static final int MAX_IN_FLIGHT = 32;
+    private static final int MAX_BATCHES = 4;
+    private static final int MAX_QUEUED_BATCHES = 16;
+
+    private final ExecutorService dispatcher = new ThreadPoolExecutor(MAX_BATCHES, MAX_BATCHES,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_BATCHES));
+
+    private transient final CommandGateway commandGateway;
+    private final OrderService orderService;
+    private final InventoryReplicaService inventoryReplicaService;
+    private final AdmissionControlService admissionControlService;
+    @Autowired
+    public OrderBatchService(CommandGateway commandGateway, OrderService orderService,
+                             InventoryReplicaService inventoryReplicaService,
+                             AdmissionControlService admissionControlService) {
+        this.commandGateway = commandGateway;
+        this.orderService = orderService;
+        this.inventoryReplicaService = inventoryReplicaService;
+        this.admissionControlService = admissionControlService;
+    }
+
+    //-- 요청 Thread를 점유하지 않도록 별도 Thread에서 처리함
+    public void createOrders(List<OrderReqCreateDTO> orderReqCreateDTOs,
+                             Consumer<ResultVO<CreateOrderCommand>> onResult, Runnable onComplete) {
+        log.info("[OrderBatchService] Executing <createOrders> for {} orders", orderReqCreateDTOs.size());
+        try {
+            dispatcher.execute(() -> dispatch(orderReqCreateDTOs, onResult, onComplete));
+        } catch (RejectedExecutionException e) {
+            log.warn("[OrderBatchService] Reject batch: too many batches in progress");
+            try {
+                onResult.accept(failure("Too many batch orders in progress. Retry later"));
+            } finally {
+                onComplete.run();
+            }
+        }
+    }
+
+    private void dispatch(List<OrderReqCreateDTO> orderReqCreateDTOs,
+                          Consumer<ResultVO<CreateOrderCommand>> onResult, Runnable onComplete) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try {
+            Map<String, InventoryDTO> inventories = loadInventories(orderReqCreateDTOs);
+
+            Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+            int index = 0;
+            for (OrderReqCreateDTO orderReqCreateDTO : orderReqCreateDTOs) {
+                final int orderNo = ++index;
+                ResultVO<CreateOrderCommand> retVo = orderService.prepareCreateOrder(orderReqCreateDTO, ids -> inventories);
+                if (!retVo.isReturnCode()) {
+                    retVo.setReturnMessage("[#" + orderNo + "] " + retVo.getReturnMessage());
+                    onResult.accept(retVo);
+                    continue;
+                }
+
+                Optional<String> rejected = admissionControlService.tryAcquire();
+                if (rejected.isPresent()) {
+                    onResult.accept(failure("[#" + orderNo + "] " + rejected.get()));
+                    continue;
+                }
+
+                CreateOrderCommand createOrderCommand = retVo.getResult();
+                reserveInventories(inventories, createOrderCommand);
+                inFlight.acquireUninterruptibly();
+                CompletableFuture<Object> sent;
+                try {
+                    sent = commandGateway.send(createOrderCommand);
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    admissionControlService.cancelAcquired();
+                    throw e;
+                }
+                futures.add(sent
+                        .orTimeout(Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS)
+                        .handle((result, e) -> {
+                            inFlight.release();
+                            ResultVO<CreateOrderCommand> sendResult = new ResultVO<>();
+                            sendResult.setResult(createOrderCommand);
+                            sendResult.setReturnCode(e == null);
+                            sendResult.setReturnMessage("[#" + orderNo + "] " + (e == null ? "Order Created" : e.getMessage()));
+                            admissionControlService.settle(AdmissionControlService.CREATE, sendResult,
+                                    ret -> ret.getResult().getOrderId());
+                            onResult.accept(sendResult);
+                            return null;
+                        }));
+            }
+        } catch (Exception e) {
+            log.error("[OrderBatchService] Batch order is stopped: {}", e.getMessage());
+            onResult.accept(failure("Batch order is stopped: " + e.getMessage()));
+        } finally {
+            //-- 발송한 주문의 결과가 모두 전달된 후 완료함
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .whenComplete((result, e) -> onComplete.run());
+        }
+    }
+
+    //-- 전체 주문의 제품 재고 정보를 한번에 조회. 주문 수량을 차감하므로 제품 정보 복제본이 아닌 복사본을 리턴함
+    private Map<String, InventoryDTO> loadInventories(List<OrderReqCreateDTO> orderReqCreateDTOs) {
+        List<String> productIds = orderReqCreateDTOs.stream()
+                .flatMap(o -> o.getOrderReqDetails().stream())
+                .map(OrderReqDetailDTO::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<String, InventoryDTO> inventories = new HashMap<>();
+        try {
+            inventoryReplicaService.getInventories(productIds).forEach((productId, inventory) ->
+                    inventories.put(productId, new InventoryDTO(inventory.getProductId(), inventory.getProductName(),
+                            inventory.getUnitPrice(), inventory.getInventoryQty())));
+        } catch (Exception e) {
+            log.error("Fail to get inventories: {}", e.getMessage());
+        }
+        return inventories;
+    }
+
+    //-- 검사를 통과한 주문의 수량을 재고에서 차감. 발송에 실패해도 되돌리지 않음(같은 batch 안에서 초과 판매하지 않는 쪽을 택함)
+    private void reserveInventories(Map<String, InventoryDTO> inventories, CreateOrderCommand createOrderCommand) {
+        for (OrderDetailDTO orderDetail : createOrderCommand.getOrderDetails()) {
+            InventoryDTO inventory = inventories.get(orderDetail.getProductId());
+            if (inventory != null) inventory.setInventoryQty(inventory.getInventoryQty() - orderDetail.getQty());
+        }
+    }
+
+    private ResultVO<CreateOrderCommand> failure(String message) {
+        ResultVO<CreateOrderCommand> retVo = new ResultVO<>();
+        retVo.setReturnCode(false);
+        retVo.setReturnMessage(message);
+        return retVo;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,84 @@
+package com.agilemall.order.service;
+/*
+- 목적: 비동기로 접수된 주문의 Saga 진행 단계를 기록하고 조회함
+- 설명
+    - OrderCreatingSaga가 각 단계의 Event를 받을 때마다 진행 단계를 기록함
+    - 메모리에 최근 주문만 보관(최대 건수, 보관 시간 제한)하며, 기록이 없는 주문은 DB의 주문 상태로 응답함
+*/
+import com.agilemall.common.dto.OrderStatusEnum;
+import com.agilemall.order.dto.OrderProgressDTO;
+import com.agilemall.order.dto.OrderProgressEnum;
+import com.agilemall.order.entity.Order;
+import com.agilemall.order.repository.OrderRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class OrderProgressService {
+    private static final long MAX_TRACKED_ORDERS = 100_000;
+    private static final long TRACKING_HOURS = 1;
+
+    private final Cache<String, OrderProgressDTO> progressCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_TRACKED_ORDERS)
+            .expireAfterWrite(TRACKING_HOURS, TimeUnit.HOURS)
+            .build();
+
+    private final OrderRepository orderRepository;
+    @Autowired
+    public OrderProgressService(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    public void record(String orderId, OrderProgressEnum progress) {
+        record(orderId, progress, progress.description());
+    }
+
+    public void record(String orderId, OrderProgressEnum progress, String message) {
+        log.info("[OrderProgressService] Order Id: {} => {}", orderId, progress.description());
+
+        progressCache.put(orderId, OrderProgressDTO.builder()
+                .orderId(orderId)
+                .progress(progress.value())
+                .progressDesc(progress.description())
+                .finished(progress.isFinished())
+                .message(message)
+                .updatedDatetime(LocalDateTime.now())
+                .build());
+    }
+
+    //-- 진행 단계를 리턴. 메모리에 없으면 DB의 주문 상태로 대신함
+    public Optional<OrderProgressDTO> getProgress(String orderId) {
+        OrderProgressDTO progress = progressCache.getIfPresent(orderId);
+        if (progress != null) return Optional.of(progress);
+
+        Optional<Order> optOrder = orderRepository.findById(orderId);
+        return optOrder.map(order -> {
+            OrderProgressEnum progressEnum = toProgress(order.getOrderStatus());
+            return OrderProgressDTO.builder()
+                    .orderId(orderId)
+                    .progress(progressEnum.value())
+                    .progressDesc(progressEnum.description())
+                    .finished(progressEnum.isFinished())
+                    .message(OrderStatusEnum.CREATED.description(order.getOrderStatus()))
+                    .updatedDatetime(order.getOrderDatetime())
+                    .build();
+        });
+    }
+
+    //-- 주문 상태를 진행 단계로 변환. 실패/취소된 주문이 완료로 응답되지 않도록 상태별로 지정함
+    private OrderProgressEnum toProgress(String orderStatus) {
+        if (OrderStatusEnum.FAILED.value().equals(orderStatus)) return OrderProgressEnum.FAILED;
+        if (OrderStatusEnum.ORDER_CANCLLED.value().equals(orderStatus)) return OrderProgressEnum.CANCELLED;
+        if (OrderStatusEnum.COMPLETED.value().equals(orderStatus)
+                || OrderStatusEnum.UPTATED.value().equals(orderStatus)) return OrderProgressEnum.COMPLETED;
+        return OrderProgressEnum.ORDER_CREATED;
+    }
+}
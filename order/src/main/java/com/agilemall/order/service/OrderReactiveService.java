@@ -0,0 +1,175 @@
+package com.agilemall.order.service;
+/*
+- 목적: OrderReactiveController에서 호출되어 주문 신규/수정/취소/현황 처리를 Mono pipeline으로 수행
+- 설명
+    - Axon Reactor extension의 ReactorCommandGateway를 사용하고, Query는 SingleFlightQueryGateway의 Future를 Mono로 변환하여 처리 중 join()으로 대기하지 않음
+    - Validation과 Command객체 생성은 OrderService의 prepare* 메소드를 그대로 사용함
+    - 주문 수정 시 주문정보, 배송정보, 결제정보, 재고정보를 동시에 요청하고 모두 도착하면 validation을 수행함
+    - DB 조회(JPA)는 blocking이므로 boundedElastic scheduler에서 수행함
+*/
+import com.agilemall.common.config.Constants;
+import com.agilemall.common.dto.DeliveryDTO;
+import com.agilemall.common.dto.InventoryDTO;
+import com.agilemall.common.dto.OrderDTO;
+import com.agilemall.common.dto.PaymentDTO;
+import com.agilemall.common.dto.ReportDTO;
+import com.agilemall.common.queries.Queries;
+import com.agilemall.common.queries.SingleFlightQueryGateway;
+import com.agilemall.common.vo.ResultVO;
+import com.agilemall.order.command.CreateOrderCommand;
+import com.agilemall.order.command.UpdateOrderCommand;
+import com.agilemall.order.dto.OrderReqCreateDTO;
+import com.agilemall.order.dto.OrderReqDetailDTO;
+import com.agilemall.order.dto.OrderReqUpdateDTO;
+import com.agilemall.order.dto.OrderStatusDTO;
+import com.agilemall.order.entity.Order;
+import com.agilemall.order.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.extensions.reactor.commandhandling.gateway.ReactorCommandGateway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class OrderReactiveService {
+    private static final Duration GATEWAY_TIMEOUT = Duration.ofSeconds(Constants.GATEWAY_TIMEOUT);
+
+    private transient final ReactorCommandGateway reactorCommandGateway;
+    private transient final SingleFlightQueryGateway queryGateway;
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final InventoryReplicaService inventoryReplicaService;
+    @Autowired
+    public OrderReactiveService(ReactorCommandGateway reactorCommandGateway, SingleFlightQueryGateway queryGateway,
+                                OrderRepository orderRepository, OrderService orderService,
+                                InventoryReplicaService inventoryReplicaService) {
+        this.reactorCommandGateway = reactorCommandGateway;
+        this.queryGateway = queryGateway;
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.inventoryReplicaService = inventoryReplicaService;
+    }
+
+    //-- 신규 주문: 재고정보 조회 -> validation 및 Command 생성 -> Command 발송
+    public Mono<ResultVO<CreateOrderCommand>> createOrder(OrderReqCreateDTO orderReqCreateDTO) {
+        log.info("[OrderReactiveService] Executing <createOrder>: {}", orderReqCreateDTO.toString());
+
+        return getInventories(orderReqCreateDTO.getOrderReqDetails())
+                .map(inventoryMap -> orderService.prepareCreateOrder(orderReqCreateDTO, productIds -> inventoryMap))
+                .flatMap(retVo -> sendCommand(retVo, "Order Created"))
+                .onErrorResume(e -> Mono.just(this.<CreateOrderCommand>failure(e.getMessage())));
+    }
+
+    //-- 주문 수정: 주문/배송/결제/재고정보 동시 조회 -> validation 및 Command 생성 -> Command 발송
+    public Mono<ResultVO<UpdateOrderCommand>> updateOrder(OrderReqUpdateDTO orderReqUpdateDTO) {
+        log.info("[OrderReactiveService] Executing <updateOrder>: {}", orderReqUpdateDTO.toString());
+
+        String orderId = orderReqUpdateDTO.getOrderId();
+        Mono<Optional<Order>> order = Mono.fromCallable(() -> orderRepository.findWithOrderDetailsByOrderId(orderId))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return Mono.zip(order,
+                        query(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class),
+                        query(Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class),
+                        getInventories(orderReqUpdateDTO.getOrderReqDetails()))
+                .map(t -> {
+                    if (t.getT1().isEmpty()) {
+                        log.info("Can't find Order info for Order Id: {}", orderId);
+                        return this.<UpdateOrderCommand>failure("Can't find Order info for Order Id:" + orderId);
+                    }
+                    return orderService.prepareUpdateOrder(orderReqUpdateDTO, t.getT1().get(),
+                            t.getT2().orElse(null), t.getT3().orElse(null), productIds -> t.getT4());
+                })
+                .flatMap(retVo -> sendCommand(retVo, "Success to request <UpdateOrderCommand>"))
+                .onErrorResume(e -> Mono.just(this.<UpdateOrderCommand>failure(e.getMessage())));
+    }
+
+    //-- 주문 현황: 주문/결제/배송정보를 동시에 조회하여 합침
+    public Mono<ResultVO<OrderStatusDTO>> getOrderStatus(String orderId) {
+        log.info("[OrderReactiveService] Executing <getOrderStatus>: {}", orderId);
+
+        return Mono.zip(query(Queries.ORDER_BY_ORDER_ID, orderId, OrderDTO.class),
+                        query(Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class),
+                        query(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class))
+                .map(t -> {
+                    if (t.getT1().isEmpty() || t.getT2().isEmpty() || t.getT3().isEmpty()) {
+                        return this.<OrderStatusDTO>failure("Fail to fetch Order Status for Order Id:" + orderId);
+                    }
+                    ResultVO<OrderStatusDTO> retVo = new ResultVO<>();
+                    retVo.setReturnCode(true);
+                    retVo.setReturnMessage("Success to fetch Order Status");
+                    retVo.setResult(orderService.toOrderStatus(t.getT1().get(), t.getT2().get(), t.getT3().get()));
+                    return retVo;
+                })
+                .onErrorResume(e -> Mono.just(this.<OrderStatusDTO>failure(e.getMessage())));
+    }
+
+    //-- 주문 취소: 배송/레포트정보 동시 조회 -> 취소 가능 여부 검사 및 Command 생성 -> Command 발송
+    public Mono<ResultVO<String>> deleteOrder(String orderId) {
+        log.info("[OrderReactiveService] Executing <deleteOrder>: {}", orderId);
+
+        return Mono.zip(query(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class),
+                        query(Queries.REPORT_BY_ORDER_ID, orderId, ReportDTO.class))
+                .map(t -> orderService.prepareDeleteOrder(orderId, t.getT1().orElse(null), t.getT2().orElse(null)))
+                .flatMap(retPrepare -> {
+                    if (!retPrepare.isReturnCode()) {
+                        return Mono.just(this.<String>failure(retPrepare.getReturnMessage()));
+                    }
+                    return reactorCommandGateway.send(retPrepare.getResult())
+                            .timeout(GATEWAY_TIMEOUT)
+                            .then(Mono.fromSupplier(() -> {
+                                ResultVO<String> retVo = new ResultVO<>();
+                                retVo.setReturnCode(true);
+                                retVo.setReturnMessage("Success to delete for Order Id:" + orderId);
+                                return retVo;
+                            }));
+                })
+                .onErrorResume(e -> Mono.just(this.<String>failure(e.getMessage())));
+    }
+
+    //=============== Private Method =======================
+
+    //-- 주문 제품의 재고정보. 로컬 복제본에 없는 제품만 Inventory service에 요청함
+    private Mono<Map<String, InventoryDTO>> getInventories(List<OrderReqDetailDTO> orderDetails) {
+        List<String> productIds = orderDetails.stream()
+                .map(OrderReqDetailDTO::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+        return Mono.fromFuture(() -> inventoryReplicaService.getInventoriesAsync(productIds));
+    }
+
+    //-- 결과가 없으면(null) Optional.empty()를 리턴. 동시에 요청된 같은 Query는 한번만 발송됨
+    private <R> Mono<Optional<R>> query(String queryName, String orderId, Class<R> responseType) {
+        return Mono.fromFuture(() -> queryGateway.query(queryName, orderId, responseType))
+                .timeout(GATEWAY_TIMEOUT)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    //-- validation에 실패한 경우는 Command를 발송하지 않음
+    private <C> Mono<ResultVO<C>> sendCommand(ResultVO<C> retVo, String successMessage) {
+        if (!retVo.isReturnCode()) return Mono.just(retVo);
+
+        return reactorCommandGateway.send(retVo.getResult())
+                .timeout(GATEWAY_TIMEOUT)
+                .then(Mono.fromSupplier(() -> {
+                    retVo.setReturnMessage(successMessage);
+                    return retVo;
+                }));
+    }
+
+    private <T> ResultVO<T> failure(String message) {
+        ResultVO<T> retVo = new ResultVO<>();
+        retVo.setReturnCode(false);
+        retVo.setReturnMessage(message);
+        return retVo;
+    }
+}
@@ -5,8 +5,11 @@ package com.agilemall.order.service;
 
 import com.agilemall.common.config.Constants;
 import com.agilemall.common.dto.*;
-import com.agilemall.common.queries.GetInventoryByProductIdQuery;
+import com.agilemall.common.id.IdGenerator;
+import com.agilemall.common.queries.ApiComposer;
 import com.agilemall.common.queries.Queries;
+import com.agilemall.common.queries.SingleFlightQueryGateway;
+import com.agilemall.common.vo.ComposedResultVO;
 import com.agilemall.common.vo.ResultVO;
 import com.agilemall.order.command.CreateOrderCommand;
 import com.agilemall.order.command.DeleteOrderCommand;
@@ -18,10 +21,7 @@ import com.agilemall.order.repository.OrderRepository;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.axonframework.commandhandling.gateway.CommandGateway;
-import org.axonframework.messaging.responsetypes.ResponseTypes;
-import org.axonframework.queryhandling.QueryGateway;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -29,30 +29,88 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class OrderService {
     private transient final CommandGateway commandGateway;
-    private transient final QueryGateway queryGateway;
+    private transient final SingleFlightQueryGateway queryGateway;
     private final OrderRepository orderRepository;
+    private final OrderProgressService orderProgressService;
+    private final InventoryReplicaService inventoryReplicaService;
     @Autowired
-    public OrderService(CommandGateway commandGateway, QueryGateway queryGateway, OrderRepository orderRepository) {
+    public OrderService(CommandGateway commandGateway, SingleFlightQueryGateway queryGateway, OrderRepository orderRepository,
+                        OrderProgressService orderProgressService, InventoryReplicaService inventoryReplicaService) {
         this.commandGateway = commandGateway;
         this.queryGateway = queryGateway;
         this.orderRepository = orderRepository;
+        this.orderProgressService = orderProgressService;
+        this.inventoryReplicaService = inventoryReplicaService;
     }
 
     /*
     - 목적: 신규 주문 처리를 진행하기 위한 validation체크 후 주문생성 Command객체를 생성하여 이후 처리를 요청함
     */
     public ResultVO<CreateOrderCommand> createOrder(OrderReqCreateDTO orderReqCreateDTO) {
+        return createOrder(orderReqCreateDTO, false);
+    }
+
+    /*
+    - 목적: 신규 주문 처리. isAsync가 true이면 Command 발송 후 처리 완료를 기다리지 않고 바로 리턴함
+    - 설명: 비동기 요청의 처리 진행 단계는 OrderProgressService로 조회함
+    */
+    public ResultVO<CreateOrderCommand> createOrder(OrderReqCreateDTO orderReqCreateDTO, boolean isAsync) {
         log.info("[OrderService] Executing <createOrder>: {}", orderReqCreateDTO.toString());
         log.info("===== [Create Order] START Transaction =====");
 
+        ResultVO<CreateOrderCommand> retVo = prepareCreateOrder(orderReqCreateDTO, inventoryReplicaService::getInventories);
+        if (!retVo.isReturnCode()) return retVo;
+        CreateOrderCommand createOrderCommand = retVo.getResult();
+        String orderId = createOrderCommand.getOrderId();
+
+        if (isAsync) {
+            log.info("===== [Create Order] #2: <CreateOrderCommand> (async) =====");
+
+            //-- Command 발송 후 결과를 기다리지 않음. 발송 실패는 진행 단계에 기록함
+            orderProgressService.record(orderId, OrderProgressEnum.ACCEPTED);
+            commandGateway.send(createOrderCommand).whenComplete((result, e) -> {
+                if (e != null) {
+                    log.error("Fail to send <CreateOrderCommand> for Order Id {}: {}", orderId, e.getMessage());
+                    orderProgressService.record(orderId, OrderProgressEnum.FAILED, e.getMessage());
+                }
+            });
+            retVo.setReturnCode(true);
+            retVo.setReturnMessage("Order Accepted");
+            retVo.setResult(createOrderCommand);
+            return retVo;
+        }
+
+        try {
+            log.info("===== [Create Order] #2: <CreateOrderCommand> =====");
+
+            //-- Command객체를 Axon서버로 발송. Axon서버는 Command Handler가 있는 서비스의 Aggregate로 메시지 전달함
+            commandGateway.sendAndWait(createOrderCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
+            retVo.setReturnCode(true);
+            retVo.setReturnMessage("Order Created");
+            retVo.setResult(createOrderCommand);
+        } catch (Exception e) {
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage(e.getMessage());
+        }
+        return retVo;
+    }
+
+    /*
+    - 목적: 신규 주문 요청의 validation 체크 후 주문생성 Command객체를 생성함. Command 발송은 하지 않음
+    - 설명: inventoryLoader는 제품ID 목록에 해당하는 재고 정보를 리턴함. 일괄 주문 시에는 미리 한번에 조회한 결과를 이용함
+    */
+    public ResultVO<CreateOrderCommand> prepareCreateOrder(OrderReqCreateDTO orderReqCreateDTO,
+                                                           Function<List<String>, Map<String, InventoryDTO>> inventoryLoader) {
         ResultVO<CreateOrderCommand> retVo = new ResultVO<>();
 
         //-- 결제수단과 결제 비율 입력값 유효성 체크: 결제 수단은 10번 또는 20번이어야 하고, 결제 비율합은 1이어야 함
@@ -67,7 +125,7 @@ public class OrderService {
 
         //--제품 재고 정보를 Query하여 재고 여부를 검사
         log.info("===== [Create Order] #1: <isValidInventory> =====");
-        List<ResultVO<InventoryDTO>> inventories = getInventory(orderReqCreateDTO.getOrderReqDetails());
+        List<ResultVO<InventoryDTO>> inventories = getInventory(orderReqCreateDTO.getOrderReqDetails(), inventoryLoader);
         String retCheck = isValidInventory(inventories);
         if (!retCheck.isEmpty()) {
             retVo.setReturnCode(false);
@@ -76,8 +134,8 @@ public class OrderService {
         }
 
         //-- 주문ID, 결제ID를 채번하고 요청 정보에서 사용자ID를 읽음
-        String orderId = "ORDER_" + RandomStringUtils.random(9, false, true);
-        String paymentId = "PAY_" + RandomStringUtils.random(11, false, true);
+        String orderId = IdGenerator.ORDER.nextId();
+        String paymentId = IdGenerator.PAYMENT.nextId();
         String userId = orderReqCreateDTO.getUserId();
 
         //주문상세 정보 객체 생성
@@ -109,18 +167,9 @@ public class OrderService {
                 .totalPaymentAmt(totalPaymentAmt)
                 .build();
 
-        try {
-            log.info("===== [Create Order] #2: <CreateOrderCommand> =====");
-
-            //-- Command객체를 Axon서버로 발송. Axon서버는 Command Handler가 있는 서비스의 Aggregate로 메시지 전달함
-            commandGateway.sendAndWait(createOrderCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            retVo.setReturnCode(true);
-            retVo.setReturnMessage("Order Created");
-            retVo.setResult(createOrderCommand);
-        } catch (Exception e) {
-            retVo.setReturnCode(false);
-            retVo.setReturnMessage(e.getMessage());
-        }
+        retVo.setReturnCode(true);
+        retVo.setReturnMessage("Order Prepared");
+        retVo.setResult(createOrderCommand);
         return retVo;
     }
 
@@ -133,18 +182,56 @@ public class OrderService {
 
         //-- 요청된 주문ID에 해당하는 주분정보를 구함
         String orderId = orderReqUpdateDTO.getOrderId();
-        ResultVO<String> retCheck;
         ResultVO<UpdateOrderCommand> retVo = new ResultVO<>();
         Optional<Order> optOrder = orderRepository.findById(orderId);
         if (optOrder.isEmpty()) {
             log.info("Can't find Order info for Order Id: {}", orderId);
-            retVo = new ResultVO<>();
             retVo.setReturnCode(false);
             retVo.setReturnMessage("Can't find Order info for Order Id:"+orderId);
             return retVo;
         }
 
-        Order order = optOrder.get();
+        //-- 배송정보와 결제정보를 동시에 요청함
+        ComposedResultVO composed = new ApiComposer(queryGateway)
+                .add(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class)
+                .add(Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class)
+                .join();
+        if (!composed.isComplete()) {
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage("Fail to fetch Delivery/Payment info: " + composed.getFailureMessage());
+            return retVo;
+        }
+
+        retVo = prepareUpdateOrder(orderReqUpdateDTO, optOrder.get(),
+                composed.get(Queries.DELIVERY_BY_ORDER_ID, DeliveryDTO.class),
+                composed.get(Queries.PAYMENT_BY_ORDER_ID, PaymentDTO.class),
+                inventoryReplicaService::getInventories);
+        if (!retVo.isReturnCode()) return retVo;
+
+        //-- 주문 수정 Command 발송
+        try {
+            commandGateway.sendAndWait(retVo.getResult(), Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
+            //commandGateway.send(updateOrderCommand);
+            retVo.setReturnCode(true);
+            retVo.setReturnMessage("Success to request <UpdateOrderCommand>");
+
+        } catch (Exception e) {
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage(e.getMessage());
+        }
+        return retVo;
+    }
+
+    /*
+    - 목적: 주문 수정 요청의 validation 체크 후 주문수정 Command객체를 생성함. Command 발송은 하지 않음
+    - 설명: 주문정보(주문상세 포함), 배송정보, 결제정보는 호출하는 쪽에서 조회하여 전달함. 배송정보나 결제정보가 없으면 null
+    */
+    public ResultVO<UpdateOrderCommand> prepareUpdateOrder(OrderReqUpdateDTO orderReqUpdateDTO, Order order,
+                                                           DeliveryDTO delivery, PaymentDTO payment,
+                                                           Function<List<String>, Map<String, InventoryDTO>> inventoryLoader) {
+        String orderId = orderReqUpdateDTO.getOrderId();
+        ResultVO<String> retCheck;
+        ResultVO<UpdateOrderCommand> retVo = new ResultVO<>();
 
         //-- 요청 제품코드 유효성 체크: 주문하지도 않은 제품을 수정하려 하는지 검사
         retCheck = isValidateProductInput(order, orderReqUpdateDTO);
@@ -165,11 +252,9 @@ public class OrderService {
             return retVo;
         }
 
-        retVo = new ResultVO<>();
-
         //-- 배송상태를 읽어 주문 수정 가능한지 검사. 배송상태가 'CREATED'인 경우만 주문 수정 가능함.
         log.info("===== [Update Order] #1: <validateOrderUpdatableByDeliveryStatus> =====");
-        retCheck = validateOrderUpdatableByDeliveryStatus(orderId);
+        retCheck = validateOrderUpdatableByDeliveryStatus(orderId, delivery);
         if (!retCheck.isReturnCode()) {
             log.info("NOT Updatable: {}", retCheck.getReturnMessage());
             retVo.setReturnCode(false);
@@ -179,7 +264,7 @@ public class OrderService {
 
         //-- 주문 제품의 재고상태를 읽어 주문 수정 가능한지 검사
         log.info("===== [Update Order] #2: <isValidInventory> =====");
-        List<ResultVO<InventoryDTO>> inventories = getInventory(orderReqUpdateDTO.getOrderReqDetails());
+        List<ResultVO<InventoryDTO>> inventories = getInventory(orderReqUpdateDTO.getOrderReqDetails(), inventoryLoader);
         String strCheck = isValidInventory(inventories);
         if (!strCheck.isEmpty()) {
             retVo.setReturnCode(false);
@@ -212,8 +297,6 @@ public class OrderService {
         int totalOrderAmt = newOrderDetails.stream().mapToInt(OrderDetailDTO::getOrderAmt).sum();
 
         //결제 상세정보 재설정
-        PaymentDTO payment = queryGateway.query(Queries.PAYMENT_BY_ORDER_ID, orderId,
-                ResponseTypes.instanceOf(PaymentDTO.class)).join();
         if (payment == null) {
             retVo.setReturnCode(false);
             retVo.setReturnMessage("주문ID <" + orderId + ">에 대한 결제정보를 찾을 수 없음");
@@ -239,18 +322,9 @@ public class OrderService {
                 .orderStatus(OrderStatusEnum.UPTATED.value())
                 .build();
 
-        //-- 주문 수정 Command 발송
-        try {
-            commandGateway.sendAndWait(updateOrderCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
-            //commandGateway.send(updateOrderCommand);
-            retVo.setReturnCode(true);
-            retVo.setReturnMessage("Success to request <UpdateOrderCommand>");
-            retVo.setResult(updateOrderCommand);
-
-        } catch (Exception e) {
-            retVo.setReturnCode(false);
-            retVo.setReturnMessage(e.getMessage());
-        }
+        retVo.setReturnCode(true);
+        retVo.setReturnMessage("Order Update Prepared");
+        retVo.setResult(updateOrderCommand);
         return retVo;
     }
 
@@ -263,31 +337,24 @@ public class OrderService {
         ResultVO<OrderStatusDTO> retVo = new ResultVO<>();
 
         try {
-            OrderDTO order = queryGateway.query(Queries.ORDER_BY_ORDER_ID, orderId,
-                    ResponseTypes.instanceOf(OrderDTO.class)).join();
-            PaymentDTO payment = queryGateway.query(Queries.PAYMENT_BY_ORDER_ID, orderId,
-                    ResponseTypes.instanceOf(PaymentDTO.class)).join();
-            DeliveryDTO delivery = queryGateway.query(Queries.DELIVERY_BY_ORDER_ID, orderId,
-                    ResponseTypes.instanceOf(DeliveryDTO.class)).join();
-
-            OrderStatusDTO orderStatusDTO = OrderStatusDTO.builder()
-                    .orderId(order.getOrderId())
-                    .userId(order.getUserId())
-                    .orderDatetime(order.getOrderDatetime())
-                    .totalOrderAmt(order.getTotalOrderAmt())
-                    .orderStatus(order.getOrderStatus())
-                    .orderDetails(order.getOrderDetails())
-                    .paymentId(payment.getPaymentId())
-                    .totalPaymentAmt(payment.getTotalPaymentAmt())
-                    .paymentStatus(payment.getPaymentStatus())
-                    .paymentDetails(payment.getPaymentDetails())
-                    .deliveryId(delivery.getDeliveryId())
-                    .deliveryStatus(delivery.getDeliveryStatus())
-                    .build();
+            //-- 주문, 결제, 배송 정보를 동시에 요청하여 가장 느린 서비스의 응답시간만큼만 기다림
+            ComposedResultVO composed = new ApiComposer(queryGateway)
+                    .add(Queries.ORDER_BY_ORDER_ID, orderId, OrderDTO.class)
+                    .add(Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class)
+                    .add(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class)
+                    .join();
+            if (!composed.isComplete()) {
+                retVo.setReturnCode(false);
+                retVo.setReturnMessage("Fail to fetch Order Status: " + composed.getFailureMessage());
+                return retVo;
+            }
+            OrderDTO order = composed.get(Queries.ORDER_BY_ORDER_ID, OrderDTO.class);
+            PaymentDTO payment = composed.get(Queries.PAYMENT_BY_ORDER_ID, PaymentDTO.class);
+            DeliveryDTO delivery = composed.get(Queries.DELIVERY_BY_ORDER_ID, DeliveryDTO.class);
 
             retVo.setReturnCode(true);
             retVo.setReturnMessage("Success to fetch Order Status");
-            retVo.setResult(orderStatusDTO);
+            retVo.setResult(toOrderStatus(order, payment, delivery));
         } catch(Exception e) {
             retVo.setReturnCode(false);
             retVo.setReturnMessage(e.getMessage());
@@ -296,6 +363,24 @@ public class OrderService {
         return retVo;
     }
 
+    //-- 주문, 결제, 배송 정보를 합쳐 주문 현황 정보를 생성
+    public OrderStatusDTO toOrderStatus(OrderDTO order, PaymentDTO payment, DeliveryDTO delivery) {
+        return OrderStatusDTO.builder()
+                .orderId(order.getOrderId())
+                .userId(order.getUserId())
+                .orderDatetime(order.getOrderDatetime())
+                .totalOrderAmt(order.getTotalOrderAmt())
+                .orderStatus(order.getOrderStatus())
+                .orderDetails(order.getOrderDetails())
+                .paymentId(payment.getPaymentId())
+                .totalPaymentAmt(payment.getTotalPaymentAmt())
+                .paymentStatus(payment.getPaymentStatus())
+                .paymentDetails(payment.getPaymentDetails())
+                .deliveryId(delivery.getDeliveryId())
+                .deliveryStatus(delivery.getDeliveryStatus())
+                .build();
+    }
+
     /*
     - 목적: 주문 취소 가능한 지 Validation 체크 후 주문 취소 Command 메시지 발송
     */
@@ -303,20 +388,32 @@ public class OrderService {
         log.info("[OrderService] Executing <deleteOrder>: {}", orderId);
         log.info("===== [Delete Order] START Transaction =====");
 
-        //-- 현재 배송상태를 읽어 주문 삭제 가능한지 검사. 주문 상태가 'CREATED'인 경우만 취소 가능함.
+        //-- 배송정보와 레포트정보(각 서비스의 ID)를 동시에 요청함
         log.info("===== [Delete Order] #1: <validateOrderDeletableByDeliveryStatus> =====");
-        ResultVO<String> retCheck = validateOrderDeletableByDeliveryStatus(orderId);
-        if (!retCheck.isReturnCode()) {
-            log.info("NOT Deletable: {}", retCheck.getReturnMessage());
-            return retCheck;
-        }
+        ComposedResultVO composed = new ApiComposer(queryGateway)
+                .add(Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class)
+                .add(Queries.REPORT_BY_ORDER_ID, orderId, ReportDTO.class)
+                .join();
 
         ResultVO<String> retVo = new ResultVO<>();
+        retVo.setResult(orderId);
+        if (!composed.isComplete()) {
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage("Fail to fetch Delivery/Report info: " + composed.getFailureMessage());
+            return retVo;
+        }
+        ResultVO<DeleteOrderCommand> retPrepare = prepareDeleteOrder(orderId,
+                composed.get(Queries.DELIVERY_BY_ORDER_ID, DeliveryDTO.class),
+                composed.get(Queries.REPORT_BY_ORDER_ID, ReportDTO.class));
+        if (!retPrepare.isReturnCode()) {
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage(retPrepare.getReturnMessage());
+            return retVo;
+        }
 
         //-- 주문 취소 Command 발송
-        DeleteOrderCommand deleteOrderCommand = DeleteOrderCommand.builder().orderId(orderId).build();
         try {
-            commandGateway.sendAndWait(deleteOrderCommand, Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
+            commandGateway.sendAndWait(retPrepare.getResult(), Constants.GATEWAY_TIMEOUT, TimeUnit.SECONDS);
             retVo.setReturnCode(true);
             retVo.setReturnMessage("Success to delete for Order Id:" + orderId);
         } catch (Exception e) {
@@ -326,26 +423,68 @@ public class OrderService {
         return retVo;
     }
 
+    /*
+    - 목적: 주문 취소 가능한 지 Validation 체크 후 주문 취소 Command객체를 생성함. Command 발송은 하지 않음
+    - 설명: 배송정보, 레포트정보는 호출하는 쪽에서 조회하여 전달함. 조회하지 못했으면 null
+      - Saga가 이후 단계에서 사용할 결제/배송/레포트 ID를 Command에 담아 Saga에서 다시 조회하지 않게 함
+    */
+    public ResultVO<DeleteOrderCommand> prepareDeleteOrder(String orderId, DeliveryDTO delivery, ReportDTO report) {
+        ResultVO<DeleteOrderCommand> retVo = new ResultVO<>();
+
+        //-- 현재 배송상태를 읽어 주문 삭제 가능한지 검사. 주문 상태가 'CREATED'인 경우만 취소 가능함.
+        ResultVO<String> retCheck = validateOrderDeletableByDeliveryStatus(orderId, delivery);
+        if (!retCheck.isReturnCode()) {
+            log.info("NOT Deletable: {}", retCheck.getReturnMessage());
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage(retCheck.getReturnMessage());
+            return retVo;
+        }
+        if (report == null) {
+            log.info("Can't find Report info for Order Id: {}", orderId);
+            retVo.setReturnCode(false);
+            retVo.setReturnMessage("Can't find Report info for Order Id:" + orderId);
+            return retVo;
+        }
+
+        retVo.setReturnCode(true);
+        retVo.setReturnMessage("Order Delete Prepared");
+        retVo.setResult(DeleteOrderCommand.builder()
+                .orderId(orderId)
+                .paymentId(report.getPaymentId())
+                .deliveryId(delivery.getDeliveryId())
+                .reportId(report.getReportId())
+                .build());
+        return retVo;
+    }
+
     //=============== Private Method =======================
 
     //-- 주문 상세 정보에 있는 각 제품 객체를 리턴함
-    private List<ResultVO<InventoryDTO>> getInventory(List<OrderReqDetailDTO> orderDetails) {
+    private List<ResultVO<InventoryDTO>> getInventory(List<OrderReqDetailDTO> orderDetails,
+                                                      Function<List<String>, Map<String, InventoryDTO>> inventoryLoader) {
         log.info("[OrderService] Executing getInventory");
 
-        GetInventoryByProductIdQuery getInventoryByProductIdQuery;
         List<ResultVO<InventoryDTO>> inventories = new ArrayList<>();
         ResultVO<InventoryDTO> retVo;
+        InventoryDTO inventoryDTO;
         int reqQty;
 
-        InventoryDTO inventoryDTO;
         try {
-            for (OrderReqDetailDTO orderDetail : orderDetails) {
-                //QueryGateway로 Query객체와 응답객체 형식을 발송함. Axon서버는 Query Handler가 있는 서비스를 호출하여 결과를 리턴함
-                getInventoryByProductIdQuery = new GetInventoryByProductIdQuery(orderDetail.getProductId());
-                inventoryDTO = queryGateway.query(getInventoryByProductIdQuery, ResponseTypes.instanceOf(InventoryDTO.class)).join();
+            //제품 정보는 로컬 복제본에서 읽고, 복제본에 없는 제품만 한번의 Query로 Inventory service에 요청함
+            List<String> productIds = orderDetails.stream()
+                    .map(OrderReqDetailDTO::getProductId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            Map<String, InventoryDTO> inventoryMap = inventoryLoader.apply(productIds);
 
+            for (OrderReqDetailDTO orderDetail : orderDetails) {
                 reqQty = orderDetail.getQty();
                 retVo = new ResultVO<>();
+                inventoryDTO = inventoryMap.get(orderDetail.getProductId());
+                if (inventoryDTO == null) {     //등록되지 않은 제품은 재고없음으로 처리
+                    inventoryDTO = new InventoryDTO();
+                    inventoryDTO.setProductId(orderDetail.getProductId());
+                }
                 retVo.setResult(inventoryDTO);
                 retVo.setReturnCode(reqQty <= inventoryDTO.getInventoryQty() && inventoryDTO.getInventoryQty() != 0);
                 inventories.add(retVo);
@@ -409,13 +548,11 @@ public class OrderService {
     }
 
     //--배송상태를 읽어 주문을 수정할 수 있는지 리턴
-    private ResultVO<String> validateOrderUpdatableByDeliveryStatus(String orderId) {
+    private ResultVO<String> validateOrderUpdatableByDeliveryStatus(String orderId, DeliveryDTO delivery) {
         log.info("Executing <validateOrderUpdatableByDeliveryStatus> for Order Id:{}", orderId);
 
         ResultVO<String> retVo = new ResultVO<>();
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        DeliveryDTO delivery = queryGateway.query(Queries.DELIVERY_BY_ORDER_ID, orderId,
-                ResponseTypes.instanceOf(DeliveryDTO.class)).join();
         if (delivery == null) {
             retVo.setReturnCode(false);
             retVo.setReturnMessage("주문ID <" + orderId + ">에 대한 배송정보를 찾을 수 없음");
@@ -462,14 +599,12 @@ public class OrderService {
         return retVo;
     }
 
-    //-- 배송상태가 생성인지 여부를 검사함. 생성 상태인 경우에만 true를 리턴
-    private ResultVO<String> validateOrderDeletableByDeliveryStatus(String orderId) {
+    //-- 배송상태가 생성인지 여부를 검사함. 생성 상태인 경우에만 true를 리턴. 배송정보가 없으면 delivery는 null
+    public ResultVO<String> validateOrderDeletableByDeliveryStatus(String orderId, DeliveryDTO delivery) {
         log.info("Executing <validateOrderDeletableByDeliveryStatus> for Order Id:{}", orderId);
 
         ResultVO<String> retVo = new ResultVO<>();
         retVo.setResult(orderId);
-        DeliveryDTO delivery = queryGateway.query(Queries.DELIVERY_BY_ORDER_ID, orderId,
-                ResponseTypes.instanceOf(DeliveryDTO.class)).join();
         if (delivery == null) {
             retVo.setReturnCode(false);
             retVo.setReturnMessage("주문ID <" + orderId + ">에 대한 배송정보를 찾을 수 없음");
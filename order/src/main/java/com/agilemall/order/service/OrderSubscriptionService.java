@@ -0,0 +1,91 @@
+package com.agilemall.order.service;
+/*
+- 목적: 주문/결제/배송 정보의 변경을 Polling 없이 SSE(Server-Sent Events)로 Client에게 전송
+- 설명
+    - Queries.ORDER_BY_ORDER_ID, PAYMENT_BY_ORDER_ID, DELIVERY_BY_ORDER_ID를 Subscription Query로 요청함
+    - 각 Query의 최초 결과를 먼저 전송하고, 이후 각 서비스의 EventsHandler가 QueryUpdateEmitter로 보낸 변경을 전송함
+    - SSE event명은 'order', 'payment', 'delivery'이며, 결제/배송 정보가 삭제되면 'payment-removed', 'delivery-removed'를 전송함
+    - 주문 정보가 삭제되거나 timeout이 되면 SSE 연결을 종료하며, 연결이 종료되면 모든 Subscription Query를 취소함
+*/
+import com.agilemall.common.dto.DeliveryDTO;
+import com.agilemall.common.dto.OrderDTO;
+import com.agilemall.common.dto.PaymentDTO;
+import com.agilemall.common.queries.Queries;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SubscriptionQueryResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class OrderSubscriptionService {
+    private static final long SSE_TIMEOUT_MINUTES = 10;
+
+    private transient final QueryGateway queryGateway;
+    @Autowired
+    public OrderSubscriptionService(QueryGateway queryGateway) {
+        this.queryGateway = queryGateway;
+    }
+
+    public SseEmitter subscribe(String orderId) {
+        log.info("[OrderSubscriptionService] Executing subscribe for Order Id: {}", orderId);
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(SSE_TIMEOUT_MINUTES));
+        List<SubscriptionQueryResult<?, ?>> subscriptions = new CopyOnWriteArrayList<>();
+        Runnable cancelAll = () -> {
+            log.info("[OrderSubscriptionService] Cancel subscription queries for Order Id: {}", orderId);
+            subscriptions.forEach(SubscriptionQueryResult::cancel);
+        };
+        emitter.onCompletion(cancelAll);
+        emitter.onTimeout(cancelAll);
+        emitter.onError(e -> cancelAll.run());
+
+        subscriptions.add(subscribe(emitter, "order", Queries.ORDER_BY_ORDER_ID, orderId, OrderDTO.class, true));
+        subscriptions.add(subscribe(emitter, "payment", Queries.PAYMENT_BY_ORDER_ID, orderId, PaymentDTO.class, false));
+        subscriptions.add(subscribe(emitter, "delivery", Queries.DELIVERY_BY_ORDER_ID, orderId, DeliveryDTO.class, false));
+        return emitter;
+    }
+
+    //-- isMain이 true인 Query(주문)가 종료되면 SSE 연결도 종료함
+    private <R> SubscriptionQueryResult<R, R> subscribe(SseEmitter emitter, String eventName, String queryName,
+                                                        String orderId, Class<R> responseType, boolean isMain) {
+        SubscriptionQueryResult<R, R> result = queryGateway.subscriptionQuery(queryName, orderId,
+                ResponseTypes.instanceOf(responseType), ResponseTypes.instanceOf(responseType));
+
+        result.initialResult()
+                .concatWith(result.updates())
+                .subscribe(
+                        dto -> send(emitter, eventName, dto),
+                        e -> {
+                            log.error("Error is occurred in subscription query <{}> for Order Id {}: {}", queryName, orderId, e.getMessage());
+                            if (isMain) emitter.completeWithError(e);
+                        },
+                        () -> {
+                            if (isMain) {
+                                emitter.complete();
+                            } else {
+                                send(emitter, eventName + "-removed", orderId);
+                            }
+                        });
+        return result;
+    }
+
+    //-- 여러 Subscription Query의 결과가 다른 thread에서 동시에 전송될 수 있으므로 동기화함
+    private void send(SseEmitter emitter, String eventName, Object data) {
+        synchronized (emitter) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+            } catch (Exception e) {
+                log.info("Fail to send <{}> event: {}", eventName, e.getMessage());
+            }
+        }
+    }
+}
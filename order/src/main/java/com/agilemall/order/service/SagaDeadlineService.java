@@ -0,0 +1,77 @@
+package com.agilemall.order.service;
+/*
+- 목적: Saga 단계별 제한시간(deadline)을 등록/취소하고, Command 발송 실패 시 해당 단계의 deadline을 즉시 만료시킴
+- 설명
+    - 'Saga유형.단계' 이름으로 deadline을 등록하고, 다음 단계 Event를 받으면 취소함.
+      제한시간 안에 Event가 오지 않으면 Saga의 @DeadlineHandler가 보상처리를 시작함
+    - 대기하는 thread 없이 DeadlineManager의 scheduler가 만료 시점에 Saga를 호출함
+    - 단계별 제한시간(초): agilemall.saga.deadline.<Saga유형>.<단계>, 없으면 agilemall.saga.deadline.default
+      예) agilemall.saga.deadline.create-order.payment=10
+    - Command 발송 실패(Command Handler 에러, timeout 포함)는 callback thread에서 발생하므로 Saga 상태를 직접 바꿀 수 없음.
+      발송 시점의 Saga scope를 기억해 두었다가 해당 단계의 deadline을 즉시 만료시켜, 실패와 시간초과를 같은 @DeadlineHandler에서 처리함
+    - Query 결과처럼 callback thread에서 받은 값도 같은 방식으로 deadline의 payload로 Saga에 전달함(onResult)
+    - schedule, cancel, onFailure, onResult는 Saga Event Handler 안에서 호출해야 함
+*/
+import com.agilemall.common.config.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.deadline.DeadlineManager;
+import org.axonframework.messaging.Scope;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class SagaDeadlineService {
+    private static final String PROPERTY_PREFIX = "agilemall.saga.deadline.";
+
+    private transient final DeadlineManager deadlineManager;
+    private final Environment environment;
+    @Autowired
+    public SagaDeadlineService(DeadlineManager deadlineManager, Environment environment) {
+        this.deadlineManager = deadlineManager;
+        this.environment = environment;
+    }
+
+    //-- 현재 Saga에 단계 deadline 등록
+    public void schedule(String deadlineName) {
+        deadlineManager.schedule(budget(deadlineName), deadlineName);
+    }
+
+    //-- 현재 Saga의 단계 deadline 취소
+    public void cancel(String... deadlineNames) {
+        for (String deadlineName : deadlineNames) {
+            deadlineManager.cancelAllWithinScope(deadlineName);
+        }
+    }
+
+    //-- CompensatingService.dispatch의 실패 처리로 사용. 실패 시 현재 Saga의 단계 deadline을 즉시 만료시킴
+    public Supplier<CompletableFuture<Void>> onFailure(String deadlineName) {
+        ScopeDescriptor sagaScope = Scope.describeCurrentScope();
+        return () -> {
+            log.info("[SagaDeadlineService] Expire <{}> immediately", deadlineName);
+            deadlineManager.schedule(Duration.ZERO, deadlineName, null, sagaScope);
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    //-- 비동기 처리 결과를 현재 Saga로 전달. 결과를 payload로 하는 deadline을 즉시 만료시켜 Saga의 @DeadlineHandler에서 처리함
+    public <T> Consumer<T> onResult(String deadlineName) {
+        ScopeDescriptor sagaScope = Scope.describeCurrentScope();
+        return result -> {
+            log.info("[SagaDeadlineService] Deliver result to <{}>", deadlineName);
+            deadlineManager.schedule(Duration.ZERO, deadlineName, result, sagaScope);
+        };
+    }
+
+    public Duration budget(String deadlineName) {
+        long defaultSeconds = environment.getProperty(PROPERTY_PREFIX + "default", Long.class, (long) Constants.GATEWAY_TIMEOUT);
+        return Duration.ofSeconds(environment.getProperty(PROPERTY_PREFIX + deadlineName, Long.class, defaultSeconds));
+    }
+}
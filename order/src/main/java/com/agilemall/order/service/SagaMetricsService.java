@@ -0,0 +1,152 @@
+package com.agilemall.order.service;
+/*
+- 목적: Saga 단계별 소요시간, 전체 처리시간, 진행 중 Saga 수를 Micrometer metric으로 기록
+- 설명
+    - agilemall.saga.step: 단계 간 소요시간. tag: saga(create-order 등), transition(예: CreatedOrder->CreatedPayment)
+    - agilemall.saga.duration: Saga 시작부터 종료까지 시간. tag: saga, outcome(completed, compensated)
+    - agilemall.saga.active: 진행 중 Saga 수. tag: saga. Saga 저장소(saga_entry)의 건수이므로 서비스 재시작과 무관함
+      - metric 수집 시 DB를 조회하지 않도록 ACTIVE_REFRESH_SECONDS마다 한번의 Query로 건수를 갱신하고, Gauge는 갱신된 값을 읽음
+    - 시간은 Event 발생 시각 기준이며, 확인: GET /actuator/metrics/agilemall.saga.step?tag=saga:create-order
+    - Timer는 histogram과 p50/p95/p99를 같이 기록함
+*/
+import com.agilemall.order.saga.SagaTimeline;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class SagaMetricsService {
+    //-- Saga 유형
+    public static final String CREATE_ORDER = "create-order";
+    public static final String UPDATE_ORDER = "update-order";
+    public static final String DELETE_ORDER = "delete-order";
+
+    //-- 종료 결과
+    public static final String COMPLETED = "completed";
+    public static final String COMPENSATED = "compensated";
+
+    private static final Map<String, String> SAGA_CLASSES = Map.of(
+            CREATE_ORDER, "com.agilemall.order.saga.OrderCreatingSaga",
+            UPDATE_ORDER, "com.agilemall.order.saga.OrderUpdatingSaga",
+            DELETE_ORDER, "com.agilemall.order.saga.OrderDeletingSaga");
+
+    private static final long ACTIVE_REFRESH_SECONDS = 15;
+
+    //-- key: Saga class명, value: 마지막으로 조회한 진행 중 Saga 수. 조회 전이거나 실패하면 NaN
+    private final Map<String, Double> activeSagas = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService activeSagaCounter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "saga-active-counter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MeterRegistry meterRegistry;
+    private final EntityManager entityManager;
+    @Autowired
+    public SagaMetricsService(MeterRegistry meterRegistry, EntityManager entityManager) {
+        this.meterRegistry = meterRegistry;
+        this.entityManager = entityManager;
+
+        SAGA_CLASSES.forEach((sagaType, sagaClass) ->
+                Gauge.builder("agilemall.saga.active", () -> activeSagas.getOrDefault(sagaClass, Double.NaN))
+                        .description("Number of sagas in progress")
+                        .tag("saga", sagaType)
+                        .register(meterRegistry));
+    }
+
+    @PostConstruct
+    public void startCounting() {
+        activeSagaCounter.scheduleWithFixedDelay(this::countActiveSagas, 0, ACTIVE_REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        activeSagaCounter.shutdownNow();
+    }
+
+    //-- Saga 시작. 리턴한 SagaTimeline을 Saga 상태에 보관해야 함
+    public SagaTimeline start(String sagaType, String step) {
+        return new SagaTimeline(sagaType, step, currentEventTime());
+    }
+
+    //-- 직전 단계부터 현재 단계까지의 시간 기록
+    public void step(SagaTimeline timeline, String step) {
+        if (timeline == null) return;
+
+        long now = currentEventTime();
+        timer("agilemall.saga.step", "Elapsed time between saga steps",
+                "saga", timeline.getSagaType(), "transition", timeline.getLastStep() + "->" + step)
+                .record(Duration.ofMillis(Math.max(0, now - timeline.getLastStepAt())));
+        timeline.moveTo(step, now);
+    }
+
+    //-- 마지막 단계 기록 후 Saga 전체 처리시간 기록
+    public void end(SagaTimeline timeline, String step, String outcome) {
+        if (timeline == null) return;
+
+        step(timeline, step);
+        timer("agilemall.saga.duration", "Elapsed time from saga start to end",
+                "saga", timeline.getSagaType(), "outcome", outcome)
+                .record(Duration.ofMillis(Math.max(0, timeline.getLastStepAt() - timeline.getStartedAt())));
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    //-- 처리 중인 Event의 발생 시각. Event 처리 중이 아니면 현재 시각
+    private long currentEventTime() {
+        if (CurrentUnitOfWork.isStarted()) {
+            Message<?> message = CurrentUnitOfWork.get().getMessage();
+            if (message instanceof EventMessage<?> eventMessage) {
+                return eventMessage.getTimestamp().toEpochMilli();
+            }
+        }
+        return System.currentTimeMillis();
+    }
+
+    //-- Saga 유형별 진행 중 건수를 한번에 조회하여 갱신. 건수가 없는 유형은 0
+    private void countActiveSagas() {
+        try {
+            List<Object[]> rows = entityManager.createQuery(
+                            "SELECT e.sagaType, COUNT(e) FROM SagaEntry e WHERE e.sagaType IN :sagaTypes GROUP BY e.sagaType",
+                            Object[].class)
+                    .setParameter("sagaTypes", SAGA_CLASSES.values())
+                    .getResultList();
+
+            Map<String, Double> counts = new HashMap<>();
+            SAGA_CLASSES.values().forEach(sagaClass -> counts.put(sagaClass, 0.0));
+            for (Object[] row : rows) {
+                counts.put((String) row[0], ((Number) row[1]).doubleValue());
+            }
+            activeSagas.putAll(counts);
+        } catch (Exception e) {
+            log.warn("Fail to count active sagas: {}", e.getMessage());
+            activeSagas.clear();
+        }
+    }
+}
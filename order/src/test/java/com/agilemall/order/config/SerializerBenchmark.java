@@ -0,0 +1,97 @@
+package com.agilemall.order.config;
+/*
+- 목적: Event 직렬화 형식(xstream, json, cbor)별 Event 1건의 크기, 압축 후 크기와 직렬화+역직렬화 1회 소요시간을 비교
+- 설명
+    - 실행: ./gradlew :order:serializerBenchmark (Axon Server, DB 없이 실행됨)
+    - 대상: CreatedOrderEvent(주문상품 3건, 결제수단 2건), CreatedPaymentEvent(결제수단 2건)
+    - WARMUP_COUNT회 수행 후 MEASURE_COUNT회의 평균을 출력함. 결과는 실행 환경(JVM, CPU)에 따라 다름
+*/
+
+import com.agilemall.common.config.CompactSerializer;
+import com.agilemall.common.config.CompressingSerializer;
+import com.agilemall.common.dto.OrderDetailDTO;
+import com.agilemall.common.dto.PaymentDetailDTO;
+import com.agilemall.common.events.create.CreatedPaymentEvent;
+import com.agilemall.order.events.CreatedOrderEvent;
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SerializerBenchmark {
+    private static final int WARMUP_COUNT = 20_000;
+    private static final int MEASURE_COUNT = 100_000;
+
+    public static void main(String[] args) {
+        XStream xStream = new XStream();
+        xStream.allowTypesByWildcard(new String[] {
+                "com.agilemall.**"
+        });
+
+        List<Object> events = List.of(createdOrderEvent(), createdPaymentEvent());
+
+        System.out.printf("%-22s %-8s %12s %12s %16s%n", "Event", "Format", "bytes/event", "compressed", "ns/round trip");
+        for (Object event : events) {
+            for (String format : new String[] { CompactSerializer.XSTREAM, CompactSerializer.JSON, CompactSerializer.CBOR }) {
+                Serializer serializer = CompactSerializer.create(format, xStream);
+                byte[] data = serializer.serialize(event, byte[].class).getData();
+                int compressedSize = CompressingSerializer.compress(data).length;
+                roundTrip(serializer, event, WARMUP_COUNT);
+                long elapsed = roundTrip(serializer, event, MEASURE_COUNT);
+                System.out.printf("%-22s %-8s %12d %12d %16d%n", event.getClass().getSimpleName(), format,
+                        data.length, compressedSize, elapsed / MEASURE_COUNT);
+            }
+        }
+    }
+
+    //-- count회 직렬화 후 역직렬화한 총 소요시간(ns)
+    private static long roundTrip(Serializer serializer, Object event, int count) {
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            SerializedObject<byte[]> serialized = serializer.serialize(event, byte[].class);
+            Object deserialized = serializer.deserialize(serialized);
+            if (deserialized == null) throw new IllegalStateException("Deserialized event is null");
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    private static CreatedOrderEvent createdOrderEvent() {
+        String orderId = "ORDER_20240101_000001";
+        String paymentId = "PAY_20240101_000001";
+        List<OrderDetailDTO> orderDetails = new ArrayList<>();
+        orderDetails.add(new OrderDetailDTO(orderId, "PROD_001", 2, 20000));
+        orderDetails.add(new OrderDetailDTO(orderId, "PROD_002", 1, 15000));
+        orderDetails.add(new OrderDetailDTO(orderId, "PROD_003", 3, 9000));
+
+        CreatedOrderEvent event = new CreatedOrderEvent();
+        event.setOrderId(orderId);
+        event.setUserId("user01");
+        event.setOrderDatetime(LocalDateTime.of(2024, 1, 1, 12, 0, 0));
+        event.setOrderStatus("10");
+        event.setTotalOrderAmt(44000);
+        event.setOrderDetails(orderDetails);
+        event.setPaymentId(paymentId);
+        event.setPaymentDetails(paymentDetails(orderId, paymentId));
+        event.setTotalPaymentAmt(44000);
+        return event;
+    }
+
+    private static CreatedPaymentEvent createdPaymentEvent() {
+        CreatedPaymentEvent event = new CreatedPaymentEvent();
+        event.setPaymentId("PAY_20240101_000001");
+        event.setOrderId("ORDER_20240101_000001");
+        event.setTotalPaymentAmt(44000);
+        event.setPaymentDetails(paymentDetails(event.getOrderId(), event.getPaymentId()));
+        return event;
+    }
+
+    private static List<PaymentDetailDTO> paymentDetails(String orderId, String paymentId) {
+        List<PaymentDetailDTO> paymentDetails = new ArrayList<>();
+        paymentDetails.add(new PaymentDetailDTO(orderId, paymentId, "10", 40000));
+        paymentDetails.add(new PaymentDetailDTO(orderId, paymentId, "20", 4000));
+        return paymentDetails;
+    }
+}
@@ -23,17 +23,18 @@ import org.axonframework.eventsourcing.EventSourcingHandler;
 import org.axonframework.modelling.command.AggregateIdentifier;
 import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.modelling.command.AggregateMember;
+import org.axonframework.serialization.Revision;
 import org.axonframework.spring.stereotype.Aggregate;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Slf4j
 //@Aggregate
-@Aggregate(snapshotTriggerDefinition = "snapshotTrigger", cache = "snapshotCache")
+@Aggregate(snapshotTriggerDefinition = "snapshotTrigger", cache = "paymentAggregateCache")
+@Revision("1")    //snapshot 구조 버전. 필드 구조를 바꾸면 올려서 이전 snapshot은 무시하고 Event로 로딩함
 public class PaymentAggregate {
     @AggregateIdentifier
     private String paymentId;
@@ -47,7 +48,8 @@ public class PaymentAggregate {
     @AggregateMember
     private List<PaymentDetail> paymentDetails;
 
-    private final List<PaymentDTO> aggregateHistory = new ArrayList<>();
+    //-- 보상처리(수정/삭제 취소) 시 되돌릴 직전 결제 정보. 바로 이전 정보만 담아 Aggregate와 snapshot 크기를 일정하게 유지함
+    private PaymentDTO previousState;
 
     public PaymentAggregate() {
 
@@ -83,7 +85,7 @@ public class PaymentAggregate {
                         o.getPaymentAmt())
                 ).collect(Collectors.toList());
 
-        this.aggregateHistory.add(cloneAggregate(this));
+        this.previousState = cloneAggregate(this);
     }
 
     @CommandHandler
@@ -121,8 +123,7 @@ public class PaymentAggregate {
                 event.getOrderId(), event.getPaymentId());
 
         //-- 수정 또는 삭제 실패 시 이전 정보로 rollback시에만 사용되므로 바로 이전 정보만 담고 있으면 됨
-        this.aggregateHistory.clear();
-        this.aggregateHistory.add(cloneAggregate(this));
+        this.previousState = cloneAggregate(this);
 
         this.totalPaymentAmt = event.getTotalPaymentAmt();
         this.paymentStatus = event.getPaymentStatus();
@@ -139,8 +140,8 @@ public class PaymentAggregate {
         log.info("[@CommandHandler] Executing CancelUpdatePaymentCommand for Order Id: {} and Payment Id: {}",
                 cancelUpdatePaymentCommand.getOrderId(), cancelUpdatePaymentCommand.getPaymentId());
 
-        if(this.aggregateHistory.isEmpty()) return;
-        PaymentDTO payment = this.aggregateHistory.get(this.aggregateHistory.size()-1);
+        if(this.previousState == null) return;
+        PaymentDTO payment = this.previousState;
 
         UpdatedPaymentEvent event = new UpdatedPaymentEvent();
         event.setPaymentId(payment.getPaymentId());
@@ -174,8 +175,8 @@ public class PaymentAggregate {
                 cancelDeletePaymentCommand.getOrderId(), cancelDeletePaymentCommand.getPaymentId());
 
         //-- 이전 결제 정보를 담은 Event객체를 담아 생성처리가 되게 함
-        if(this.aggregateHistory.isEmpty()) return;
-        PaymentDTO payment = this.aggregateHistory.get(this.aggregateHistory.size()-1);
+        if(this.previousState == null) return;
+        PaymentDTO payment = this.previousState;
         CreatedPaymentEvent event = new CreatedPaymentEvent();
         event.setPaymentId(payment.getPaymentId());
         event.setOrderId(payment.getOrderId());
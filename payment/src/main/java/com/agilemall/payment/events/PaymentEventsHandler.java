@@ -1,4 +1,10 @@
 package com.agilemall.payment.events;
+/*
+- 목적: PaymentAggregate에서 생성된 Event 처리를 수행
+- 설명
+    - 결제 정보가 변경되면 Queries.PAYMENT_BY_ORDER_ID Subscription Query 구독자에게 변경된 결제 정보를 전송함
+    - 결제 정보가 삭제되면 해당 주문의 Subscription Query를 종료함
+*/
 
 import com.agilemall.common.dto.PaymentDetailDTO;
 import com.agilemall.common.dto.PaymentStatusEnum;
@@ -10,9 +16,11 @@ import com.agilemall.common.events.delete.FailedDeletePaymentEvent;
 import com.agilemall.common.events.update.FailedUpdatePaymentEvent;
 import com.agilemall.common.events.update.UpdatedPaymentEvent;
 import com.agilemall.common.events.update.UpdatedPaymentToReportEvent;
+import com.agilemall.common.queries.Queries;
 import com.agilemall.payment.entity.Payment;
 import com.agilemall.payment.entity.PaymentDetail;
 import com.agilemall.payment.entity.PaymentDetailIdentity;
+import com.agilemall.payment.queries.PaymentQueryHandler;
 import com.agilemall.payment.repository.PaymentRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.config.ProcessingGroup;
@@ -20,6 +28,8 @@ import org.axonframework.eventhandling.AllowReplay;
 import org.axonframework.eventhandling.EventHandler;
 import org.axonframework.eventhandling.ResetHandler;
 import org.axonframework.eventhandling.gateway.EventGateway;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryMessage;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -36,10 +46,13 @@ public class PaymentEventsHandler {
 
     private final PaymentRepository paymentRepository;
     private transient final EventGateway eventGateway;
+    private transient final QueryUpdateEmitter queryUpdateEmitter;
     @Autowired
-    public PaymentEventsHandler(PaymentRepository paymentRepository, EventGateway eventGateway) {
+    public PaymentEventsHandler(PaymentRepository paymentRepository, EventGateway eventGateway,
+                                QueryUpdateEmitter queryUpdateEmitter) {
         this.paymentRepository = paymentRepository;
         this.eventGateway = eventGateway;
+        this.queryUpdateEmitter = queryUpdateEmitter;
     }
 
     @EventHandler
@@ -68,6 +81,7 @@ public class PaymentEventsHandler {
             payment.setPaymentDetails(newPaymentDetails);
 
             paymentRepository.save(payment);
+            emitPaymentUpdate(payment);
         } catch(Exception e) {
             log.error("Error is occurred during handle <PaymentProcessedEvent>: {}", e.getMessage());
             if(!event.isCompensation()) {   //보상처리가 아닌 경우만 수행
@@ -82,6 +96,7 @@ public class PaymentEventsHandler {
         Payment payment = getEntity(event.getPaymentId());
         if(payment != null) {
             paymentRepository.delete(payment);
+            completePaymentSubscription(event.getOrderId());
         }
     }
 
@@ -105,6 +120,7 @@ public class PaymentEventsHandler {
             }
 
             paymentRepository.save(payment);
+            emitPaymentUpdate(payment);
 
             //-- Report 업데이트를 위해 Event 발행
             UpdatedPaymentToReportEvent updatedPaymentToReportEvent = new UpdatedPaymentToReportEvent();
@@ -127,6 +143,7 @@ public class PaymentEventsHandler {
         }
         try {
             paymentRepository.delete(payment);
+            completePaymentSubscription(event.getOrderId());
         } catch(Exception e) {
             log.error(e.getMessage());
             eventGateway.publish(new FailedDeletePaymentEvent(event.getPaymentId(), event.getOrderId()));
@@ -143,6 +160,19 @@ public class PaymentEventsHandler {
         }
     }
 
+    //-- Subscription Query 구독자에게 변경 전송. Unit of Work가 commit된 후에 전송됨
+    private void emitPaymentUpdate(Payment payment) {
+        queryUpdateEmitter.emit(q -> isPaymentSubscription(q, payment.getOrderId()), PaymentQueryHandler.toPaymentDTO(payment));
+    }
+
+    private void completePaymentSubscription(String orderId) {
+        queryUpdateEmitter.complete(q -> isPaymentSubscription(q, orderId));
+    }
+
+    private boolean isPaymentSubscription(SubscriptionQueryMessage<?, ?, ?> query, String orderId) {
+        return Queries.PAYMENT_BY_ORDER_ID.equals(query.getQueryName()) && orderId.equals(query.getPayload());
+    }
+
     @ResetHandler
     private void replayAll() {
         log.info("[PaymentEventHandler] Executing replayAll");
@@ -30,19 +30,18 @@ public class PaymentQueryHandler {
         log.info("[@QueryHandler] Handle <{}> for Order Id: {}", Queries.PAYMENT_BY_ORDER_ID, orderId);
 
         Optional<Payment> optPayment = paymentRepository.findByOrderId(orderId);
-        if(optPayment.isPresent()) {
-            Payment payment = optPayment.get();
-            PaymentDTO paymentDTO = new PaymentDTO();
-            BeanUtils.copyProperties(payment, paymentDTO);
-            List<PaymentDetailDTO> newDetails = payment.getPaymentDetails().stream()
-                    .map(o -> new PaymentDetailDTO(orderId, o.getPaymentDetailIdentity().getPaymentId(), o.getPaymentDetailIdentity().getPaymentKind(), o.getPaymentAmt()))
-                    .collect(Collectors.toList());
-            paymentDTO.setPaymentDetails(newDetails);
-
-            return paymentDTO;
-        } else {
-            return null;
-        }
+        return optPayment.map(PaymentQueryHandler::toPaymentDTO).orElse(null);
+    }
+
+    //-- Payment entity를 Query 응답용 PaymentDTO로 변환. Subscription Query 변경 전송 시에도 사용함
+    public static PaymentDTO toPaymentDTO(Payment payment) {
+        PaymentDTO paymentDTO = new PaymentDTO();
+        BeanUtils.copyProperties(payment, paymentDTO);
+        List<PaymentDetailDTO> newDetails = payment.getPaymentDetails().stream()
+                .map(o -> new PaymentDetailDTO(payment.getOrderId(), o.getPaymentDetailIdentity().getPaymentId(), o.getPaymentDetailIdentity().getPaymentKind(), o.getPaymentAmt()))
+                .collect(Collectors.toList());
+        paymentDTO.setPaymentDetails(newDetails);
+        return paymentDTO;
     }
 
 }